@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.bench;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.Locale;
+import jdk.tools.Program;
+
+/**
+ * Measures the launch time of a JDK tool program with and without a class data sharing archive.
+ *
+ * <p>Run it with {@code java -p <modules> -m jdk.tools.bench/jdk.tools.bench.ClassDataSharingBench
+ * [--tool javac] [--runs 10]}. The tool compiles a single small source file per run. The first run
+ * using an archive creates it and is not measured. One JSON line with the average duration of a
+ * run in milliseconds with and without the archive is written to the standard output stream.
+ */
+public final class ClassDataSharingBench {
+  public static void main(String... args) throws Exception {
+    var name = "javac";
+    var runs = 10;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "--tool" -> name = args[i + 1];
+        case "--runs" -> runs = Integer.parseInt(args[i + 1]);
+        default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+      }
+    }
+    var tool = Program.findJavaDevelopmentKitTool(name).orElseThrow();
+    var folder = Files.createTempDirectory("jdk.tools-cds-bench-");
+    var source = Files.writeString(folder.resolve("Hello.java"), "class Hello {}\n");
+    var classes = folder.resolve("classes").toString();
+    var arguments = new String[] {"-d", classes, source.toString()};
+    var program = (Program) tool;
+    var shared = program.withClassDataSharing(folder.resolve("archives"));
+    var silent = new PrintWriter(Writer.nullWriter());
+    if (shared.run(silent, silent, arguments) != 0) throw new AssertionError("Dumping failed");
+    if (!Files.isRegularFile(shared.archive())) throw new AssertionError("No archive created");
+    var plain = measure(program, runs, silent, arguments);
+    var archived = measure(shared, runs, silent, arguments);
+    System.out.println(
+        String.format(
+            Locale.ROOT,
+            "{\"tool\":\"%s\",\"runs\":%d,\"plainMillis\":%.1f,\"archivedMillis\":%.1f}",
+            name,
+            runs,
+            plain,
+            archived));
+    try (var files = Files.walk(folder)) {
+      for (var file : files.sorted((a, b) -> b.compareTo(a)).toList()) Files.delete(file);
+    }
+  }
+
+  private static double measure(Program program, int runs, PrintWriter silent, String... args) {
+    var start = System.nanoTime();
+    for (int run = 0; run < runs; run++) {
+      if (program.run(silent, silent, args) != 0) throw new AssertionError("Run failed");
+    }
+    return (System.nanoTime() - start) / 1e6 / runs;
+  }
+}
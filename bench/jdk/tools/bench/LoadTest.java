@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.bench;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.spi.ToolProvider;
+import jdk.tools.Command;
+import jdk.tools.Program;
+import jdk.tools.Tool;
+import jdk.tools.ToolFinder;
+import jdk.tools.ToolPrinter;
+import jdk.tools.ToolRunner;
+
+/**
+ * Measures the scalability of tool runners under increasing numbers of concurrent tool runs.
+ *
+ * <p>Run it with {@code java -p <modules> -m jdk.tools.bench/jdk.tools.bench.LoadTest [options]}.
+ * For each scenario and concurrency level, a fixed number of runs is executed by that many threads
+ * sharing a single tool runner, tool finder, and printer. One line per measurement is written to the
+ * standard output stream, either as a JSON object or as comma-separated values, containing the
+ * throughput in runs per second, latency percentiles in microseconds, and the allocation rate of
+ * the running threads in bytes per second.
+ *
+ * <p>Options:
+ *
+ * <ul>
+ *   <li>{@code --scenarios cpu,sleep,output,program} selects the synthetic workloads: CPU-bound,
+ *       sleeping, and output-heavy tool providers, and a program running a local shell script
+ *   <li>{@code --levels 1,4,16,64,256} selects the concurrency levels to sweep
+ *   <li>{@code --runs 10000} sets the number of runs per in-process measurement
+ *   <li>{@code --program-runs 200} sets the number of runs per program measurement
+ *   <li>{@code --format json} selects {@code json} lines or {@code csv} output
+ * </ul>
+ *
+ * <p>All synthetic tools except the CPU-bound one have no weight, so the resource budget does not
+ * limit their concurrency.
+ */
+public final class LoadTest {
+  private static final List<String> COLUMNS =
+      List.of(
+          "scenario",
+          "concurrency",
+          "runs",
+          "failures",
+          "seconds",
+          "throughput",
+          "p50",
+          "p90",
+          "p99",
+          "max",
+          "allocationRate");
+
+  public static void main(String... args) throws Exception {
+    var scenarios = List.of("cpu", "sleep", "output", "program");
+    var levels = List.of(1, 4, 16, 64, 256);
+    var runs = 10_000;
+    var programRuns = 200;
+    var csv = false;
+    for (int i = 0; i < args.length; i++) {
+      var option = args[i];
+      if (i + 1 == args.length) throw new IllegalArgumentException("Missing value: " + option);
+      var value = args[++i];
+      switch (option) {
+        case "--scenarios" -> scenarios = List.of(value.split(","));
+        case "--levels" -> levels = Arrays.stream(value.split(",")).map(Integer::valueOf).toList();
+        case "--runs" -> runs = Integer.parseInt(value);
+        case "--program-runs" -> programRuns = Integer.parseInt(value);
+        case "--format" -> csv = switch (value) {
+          case "csv" -> true;
+          case "json" -> false;
+          default -> throw new IllegalArgumentException("Unknown format: " + value);
+        };
+        default -> throw new IllegalArgumentException("Unknown option: " + option);
+      }
+    }
+    var folder = Files.createTempDirectory("jdk.tools-load-test-");
+    try {
+      var runner = newToolRunner(folder);
+      if (csv) System.out.println(String.join(",", COLUMNS));
+      for (var scenario : scenarios) {
+        var command = Command.of(scenario).with("--load-test");
+        if (runner.context().finder().find(scenario).isEmpty()) {
+          System.err.println("Scenario not available: " + scenario);
+          continue;
+        }
+        var count = scenario.equals("program") ? programRuns : runs;
+        measure(runner, command, levels.get(0), Math.max(1, count / 10)); // warm-up
+        for (var level : levels) {
+          var measurement = measure(runner, command, level, count);
+          System.out.println(csv ? measurement.toCsv() : measurement.toJson());
+        }
+      }
+    } finally {
+      try (var files = Files.walk(folder)) {
+        for (var file : files.sorted((a, b) -> b.compareTo(a)).toList()) Files.delete(file);
+      }
+    }
+  }
+
+  static ToolRunner newToolRunner(Path folder) throws IOException {
+    var tools = new ArrayList<Tool>();
+    var none = Tool.Weight.NONE;
+    tools.add(Tool.of("load", new Synthetic("cpu", Synthetic::compute)));
+    tools.add(Tool.of("load", new Synthetic("sleep", Synthetic::sleep)).withWeight(none));
+    tools.add(Tool.of("load", new Synthetic("output", Synthetic::print)).withWeight(none));
+    var shell = Path.of("/bin/sh");
+    if (Files.isExecutable(shell)) {
+      var script = folder.resolve("program.sh");
+      Files.writeString(script, "#!/bin/sh\necho \"$@\"\n");
+      Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+      var program = new Program("program", List.of(shell.toString(), script.toString()));
+      tools.add(Tool.of("load", program).withWeight(none));
+    }
+    var silent = new PrintWriter(Writer.nullWriter());
+    return ToolRunner.of(ToolFinder.of(tools), ToolPrinter.of(silent, silent));
+  }
+
+  static Measurement measure(ToolRunner runner, Command command, int concurrency, int runs)
+      throws InterruptedException {
+    var latencies = new long[runs];
+    var next = new AtomicInteger();
+    var failures = new AtomicInteger();
+    var allocated = new AtomicLong();
+    var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    var executor = Executors.newFixedThreadPool(concurrency);
+    var start = System.nanoTime();
+    for (int thread = 0; thread < concurrency; thread++) {
+      executor.execute(
+          () -> {
+            var bytes = threads.getCurrentThreadAllocatedBytes();
+            for (int run = next.getAndIncrement(); run < runs; run = next.getAndIncrement()) {
+              var begin = System.nanoTime();
+              try {
+                if (!runner.call(command).isSuccessful()) failures.incrementAndGet();
+              } catch (RuntimeException exception) {
+                failures.incrementAndGet();
+              }
+              latencies[run] = System.nanoTime() - begin;
+            }
+            allocated.addAndGet(threads.getCurrentThreadAllocatedBytes() - bytes);
+          });
+    }
+    executor.shutdown();
+    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    var seconds = (System.nanoTime() - start) / 1e9;
+    Arrays.sort(latencies);
+    return new Measurement(
+        command.tool(),
+        concurrency,
+        runs,
+        failures.get(),
+        seconds,
+        runs / seconds,
+        percentile(latencies, 50),
+        percentile(latencies, 90),
+        percentile(latencies, 99),
+        latencies[runs - 1] / 1000,
+        allocated.get() / seconds);
+  }
+
+  // nearest-rank percentile of sorted nanoseconds, in microseconds
+  private static long percentile(long[] sorted, int percent) {
+    var rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+    return sorted[Math.max(0, rank - 1)] / 1000;
+  }
+
+  record Measurement(
+      String scenario,
+      int concurrency,
+      int runs,
+      int failures,
+      double seconds,
+      double throughput,
+      long p50,
+      long p90,
+      long p99,
+      long max,
+      double allocationRate) {
+
+    List<String> values() {
+      return List.of(
+          scenario,
+          Integer.toString(concurrency),
+          Integer.toString(runs),
+          Integer.toString(failures),
+          String.format(Locale.ROOT, "%.3f", seconds),
+          String.format(Locale.ROOT, "%.1f", throughput),
+          Long.toString(p50),
+          Long.toString(p90),
+          Long.toString(p99),
+          Long.toString(max),
+          String.format(Locale.ROOT, "%.0f", allocationRate));
+    }
+
+    String toCsv() {
+      return String.join(",", values());
+    }
+
+    String toJson() {
+      var values = values();
+      var members = new ArrayList<String>();
+      for (int i = 0; i < COLUMNS.size(); i++) {
+        var value = i == 0 ? '"' + values.get(i) + '"' : values.get(i);
+        members.add('"' + COLUMNS.get(i) + "\":" + value);
+      }
+      return "{" + String.join(",", members) + "}";
+    }
+  }
+
+  /** A synthetic tool provider running a fixed workload. */
+  record Synthetic(String name, Workload workload) implements ToolProvider {
+    @FunctionalInterface
+    interface Workload {
+      int run(PrintWriter out, PrintWriter err, String... args) throws Exception;
+    }
+
+    @Override
+    public int run(PrintWriter out, PrintWriter err, String... args) {
+      try {
+        return workload.run(out, err, args);
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+        return -1;
+      } catch (Exception exception) {
+        exception.printStackTrace(err);
+        return 1;
+      }
+    }
+
+    // about one millisecond of integer arithmetic
+    static int compute(PrintWriter out, PrintWriter err, String... args) {
+      var hash = 0x811c9dc5;
+      for (int i = 0; i < 1_000_000; i++) hash = (hash ^ i) * 0x01000193;
+      return hash == 42 ? 1 : 0;
+    }
+
+    static int sleep(PrintWriter out, PrintWriter err, String... args) throws Exception {
+      Thread.sleep(5);
+      return 0;
+    }
+
+    static int print(PrintWriter out, PrintWriter err, String... args) {
+      var suffix = " of output " + String.join(" ", args);
+      for (int i = 0; i < 100; i++) out.println("line " + i + suffix);
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.bench;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.spi.ToolProvider;
+import jdk.tools.Program;
+
+/**
+ * Measures runs of a trivial program by persistent workers and by launching a process per run.
+ *
+ * <p>Run it with {@code java -p <modules> -m jdk.tools.bench/jdk.tools.bench.PersistentWorkersBench
+ * [--runs 1000] [--python python3]}. The program is a Python script echoing its arguments, either
+ * speaking the request and response protocol of persistent workers on its standard streams or
+ * handling a single run. One JSON line with the total duration of all runs in milliseconds per
+ * mode is written to the standard output stream; launched runs are limited to a tenth of the runs
+ * and extrapolated.
+ */
+public final class PersistentWorkersBench {
+  private static final String SCRIPT =
+      """
+      import struct, sys
+      stdin, stdout = sys.stdin.buffer, sys.stdout.buffer
+      def read(size):
+          data = stdin.read(size)
+          if len(data) < size: sys.exit(0)
+          return data
+      def read_string():
+          return read(struct.unpack(">i", read(4))[0]).decode()
+      def write_string(text):
+          data = text.encode()
+          stdout.write(struct.pack(">i", len(data)) + data)
+      if len(sys.argv) > 1 and sys.argv[1] == "--once":
+          print(" ".join(sys.argv[2:]))
+          sys.exit(0)
+      while True:
+          args = [read_string() for _ in range(struct.unpack(">i", read(4))[0])]
+          stdout.write(struct.pack(">i", 0))
+          write_string(" ".join(args) + "\\n")
+          write_string("")
+          stdout.flush()
+      """;
+
+  public static void main(String... args) throws Exception {
+    var runs = 1000;
+    var python = "python3";
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "--runs" -> runs = Integer.parseInt(args[i + 1]);
+        case "--python" -> python = args[i + 1];
+        default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+      }
+    }
+    var script = Files.createTempFile("jdk.tools-persistent-workers-bench-", ".py");
+    try {
+      Files.writeString(script, SCRIPT);
+      var program = new Program("echo", List.of(python, script.toString()));
+      var silent = new PrintWriter(Writer.nullWriter());
+      double persistent;
+      try (var workers = program.withPersistentWorkers(1)) {
+        measure(workers, 10, silent, "warm-up");
+        persistent = measure(workers, runs, silent, "run");
+      }
+      var launched = measure(program, Math.max(1, runs / 10), silent, "--once", "run");
+      launched = launched * runs / Math.max(1, runs / 10);
+      System.out.println(
+          String.format(
+              Locale.ROOT,
+              "{\"runs\":%d,\"persistentMillis\":%.1f,\"launchedMillis\":%.1f}",
+              runs,
+              persistent,
+              launched));
+    } finally {
+      Files.delete(script);
+    }
+  }
+
+  // the total duration of the given number of runs in milliseconds
+  private static double measure(ToolProvider tool, int runs, PrintWriter silent, String... args) {
+    var start = System.nanoTime();
+    for (int run = 0; run < runs; run++) {
+      if (tool.run(silent, silent, args) != 0) throw new AssertionError("Run failed");
+    }
+    return (System.nanoTime() - start) / 1e6;
+  }
+}
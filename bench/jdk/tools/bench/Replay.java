@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.bench;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.spi.ToolProvider;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import jdk.tools.Command;
+import jdk.tools.Task;
+import jdk.tools.Tool;
+import jdk.tools.ToolFinder;
+import jdk.tools.ToolOperator;
+import jdk.tools.ToolPrinter;
+import jdk.tools.ToolRunner;
+
+/**
+ * Replays tool runs recorded by {@code jdk.tools.ToolRun} events against stub tool providers.
+ *
+ * <p>Run it with {@code java -p <modules> -m jdk.tools.bench/jdk.tools.bench.Replay [options]
+ * recording.jfr...}.
+ * Each recorded run is replaced by a stub of the same tool name and arguments, which burns the
+ * recorded CPU time, sleeps for the rest of the recorded duration, and prints as many characters
+ * to the output and error streams as the recorded run did. Arguments are parsed from their quoted
+ * form and output volumes are taken from the recorded lengths; recordings of older versions lack
+ * both, their arguments are split at spaces and their output volumes are capped at the capture
+ * limit. Runs of tool operators, like tasks,
+ * are skipped as their nested runs are recorded on their own; providers whose classes are not
+ * available to this harness are treated as plain tools. One line is written to the standard output
+ * stream, either as a JSON object or as comma-separated values, containing the recorded and the
+ * replayed makespan in seconds, the CPU time of this process in seconds, the peak heap usage, and
+ * the number of output characters.
+ *
+ * <p>Options:
+ *
+ * <ul>
+ *   <li>{@code --mode parallel} replays all runs as one parallel task, {@code sequential} as one
+ *       sequential task, and {@code timed} starts each run at its recorded offset
+ *   <li>{@code --speed 1} divides all recorded durations and offsets by the given factor
+ *   <li>{@code --exit-codes} makes the stubs return recorded exit codes, by default they return
+ *       zero in order to not abort replaying tasks at the first failed run
+ *   <li>{@code --format json} selects {@code json} lines or {@code csv} output
+ * </ul>
+ *
+ * <p>Dependencies between runs are not recorded: the parallel mode treats all runs as independent
+ * and measures how well the runner schedules them, while the timed mode keeps the recorded shape
+ * and measures the overhead added to each run.
+ */
+public final class Replay {
+  private static final List<String> COLUMNS =
+      List.of(
+          "mode",
+          "runs",
+          "failures",
+          "recordedBusy",
+          "recordedMakespan",
+          "makespan",
+          "cpuSeconds",
+          "peakHeap",
+          "outputChars");
+
+  public static void main(String... args) throws Exception {
+    var mode = "parallel";
+    var speed = 1.0;
+    var exitCodes = false;
+    var csv = false;
+    var files = new ArrayList<Path>();
+    for (int i = 0; i < args.length; i++) {
+      var option = args[i];
+      if (option.equals("--exit-codes")) {
+        exitCodes = true;
+        continue;
+      }
+      if (!option.startsWith("--")) {
+        files.add(Path.of(option));
+        continue;
+      }
+      if (i + 1 == args.length) throw new IllegalArgumentException("Missing value: " + option);
+      var value = args[++i];
+      switch (option) {
+        case "--mode" -> mode = switch (value) {
+          case "parallel", "sequential", "timed" -> value;
+          default -> throw new IllegalArgumentException("Unknown mode: " + value);
+        };
+        case "--speed" -> speed = Double.parseDouble(value);
+        case "--format" -> csv = switch (value) {
+          case "csv" -> true;
+          case "json" -> false;
+          default -> throw new IllegalArgumentException("Unknown format: " + value);
+        };
+        default -> throw new IllegalArgumentException("Unknown option: " + option);
+      }
+    }
+    if (files.isEmpty()) throw new IllegalArgumentException("No recording files given");
+    if (speed <= 0) throw new IllegalArgumentException("Speed must be positive: " + speed);
+    var profiles = new ArrayList<Profile>();
+    for (var file : files) profiles.addAll(read(file));
+    profiles.sort(Comparator.comparing(Profile::start));
+    if (profiles.isEmpty()) throw new IllegalArgumentException("No tool runs recorded");
+    var measurement = replay(profiles, mode, speed, exitCodes);
+    if (csv) System.out.println(String.join(",", COLUMNS));
+    System.out.println(csv ? measurement.toCsv() : measurement.toJson());
+  }
+
+  /** A recorded tool run. */
+  record Profile(
+      String tool,
+      List<String> arguments,
+      Instant start,
+      Duration duration,
+      Duration cpuTime,
+      int outChars,
+      int errChars,
+      int code) {
+
+    Instant end() {
+      return start.plus(duration);
+    }
+
+    Command toCommand() {
+      return new Command(tool, arguments);
+    }
+  }
+
+  static List<Profile> read(Path file) throws IOException {
+    var profiles = new ArrayList<Profile>();
+    for (var event : RecordingFile.readAllEvents(file)) {
+      if (!event.getEventType().getName().equals("jdk.tools.ToolRun")) continue;
+      var provider = event.getClass("provider");
+      if (provider != null && isOperator(provider.getName())) continue;
+      var name = event.getString("name");
+      var quoted = event.hasField("outLength"); // arguments are quoted since lengths are recorded
+      profiles.add(
+          new Profile(
+              name,
+              arguments(name, event.getString("args"), quoted),
+              event.getStartTime(),
+              event.getDuration(),
+              event.getDuration("cpuTime"),
+              length(event, "out", quoted),
+              length(event, "err", quoted),
+              event.getInt("code")));
+    }
+    return profiles;
+  }
+
+  private static boolean isOperator(String provider) {
+    try {
+      var type = Class.forName(provider, false, Replay.class.getClassLoader());
+      return ToolOperator.class.isAssignableFrom(type);
+    } catch (ClassNotFoundException | LinkageError exception) {
+      return false;
+    }
+  }
+
+  private static List<String> arguments(String name, String args, boolean quoted) {
+    if (args == null || args.isEmpty()) return List.of();
+    if (quoted) return Command.ofCommandLine(name + " " + args).arguments();
+    return List.of(args.split(" "));
+  }
+
+  private static int length(RecordedEvent event, String field, boolean recorded) {
+    if (recorded) return (int) Math.min(Integer.MAX_VALUE, event.getLong(field + "Length"));
+    var value = event.getString(field);
+    return value == null ? 0 : value.length();
+  }
+
+  static Measurement replay(List<Profile> profiles, String mode, double speed, boolean exitCodes)
+      throws InterruptedException {
+    var stubs = new HashMap<String, Stub>();
+    for (var profile : profiles) {
+      stubs.computeIfAbsent(profile.tool(), name -> new Stub(name, speed, exitCodes));
+      stubs.get(profile.tool()).add(profile);
+    }
+    var tools = stubs.values().stream().map(stub -> Tool.of("replay", stub)).toList();
+    var silent = new PrintWriter(Writer.nullWriter());
+    var runner = ToolRunner.of(ToolFinder.of(tools), ToolPrinter.of(silent, silent));
+    var commands = profiles.stream().map(Profile::toCommand).toList();
+
+    var failures = new AtomicInteger();
+    var os =
+        (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+    var pools = ManagementFactory.getMemoryPoolMXBeans();
+    pools.forEach(pool -> pool.resetPeakUsage());
+    var cpu = os.getProcessCpuTime();
+    var begin = System.nanoTime();
+    switch (mode) {
+      case "parallel", "sequential" -> {
+        try {
+          runner.run(Tool.of(new Workload(commands, mode.equals("parallel"))));
+        } catch (RuntimeException exception) {
+          failures.incrementAndGet();
+          System.err.println(exception);
+        }
+      }
+      case "timed" -> {
+        var executor = Executors.newCachedThreadPool();
+        var first = profiles.get(0).start();
+        for (var profile : profiles) {
+          var offset = Duration.between(first, profile.start()).toNanos() / speed;
+          var delay = (long) offset - (System.nanoTime() - begin);
+          if (delay > 0) TimeUnit.NANOSECONDS.sleep(delay);
+          var command = profile.toCommand();
+          executor.execute(
+              () -> {
+                if (!runner.call(command).isSuccessful()) failures.incrementAndGet();
+              });
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      }
+      default -> throw new AssertionError(mode);
+    }
+    var makespan = (System.nanoTime() - begin) / 1e9;
+    var cpuSeconds = (os.getProcessCpuTime() - cpu) / 1e9;
+    var peakHeap =
+        pools.stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .mapToLong(pool -> pool.getPeakUsage().getUsed())
+            .sum();
+
+    var first = profiles.get(0).start();
+    var last = profiles.stream().map(Profile::end).max(Comparator.naturalOrder()).orElseThrow();
+    var busy = profiles.stream().mapToLong(profile -> profile.duration().toNanos()).sum() / 1e9;
+    return new Measurement(
+        mode,
+        profiles.size(),
+        failures.get(),
+        busy / speed,
+        Duration.between(first, last).toNanos() / 1e9 / speed,
+        makespan,
+        cpuSeconds,
+        peakHeap,
+        stubs.values().stream().mapToLong(stub -> stub.printed.get()).sum());
+  }
+
+  /** All recorded runs as one task. */
+  record Workload(List<Command> commands, boolean parallel) implements Task {
+    @Override
+    public String name() {
+      return "replay";
+    }
+  }
+
+  /** A stub of a recorded tool, reproducing the profiles of runs with identical arguments. */
+  static final class Stub implements ToolProvider {
+    private static volatile int sink; // keeps the CPU burning loop from being optimized away
+
+    private final String name;
+    private final double speed;
+    private final boolean exitCodes;
+    private final Map<List<String>, Queue<Profile>> profiles = new HashMap<>();
+    private final AtomicLong printed = new AtomicLong();
+
+    Stub(String name, double speed, boolean exitCodes) {
+      this.name = name;
+      this.speed = speed;
+      this.exitCodes = exitCodes;
+    }
+
+    void add(Profile profile) {
+      profiles.computeIfAbsent(profile.arguments(), key -> new ConcurrentLinkedQueue<>());
+      profiles.get(profile.arguments()).add(profile);
+    }
+
+    @Override
+    public String name() {
+      return name;
+    }
+
+    @Override
+    public int run(PrintWriter out, PrintWriter err, String... args) {
+      var start = System.nanoTime();
+      var queue = profiles.get(List.of(args));
+      var profile = queue == null ? null : queue.poll();
+      if (profile == null) {
+        err.println("No recorded run left: " + name + " " + String.join(" ", args));
+        return 1;
+      }
+      var threads = ManagementFactory.getThreadMXBean();
+      var cpu = threads.getCurrentThreadCpuTime();
+      var burn = (long) (profile.cpuTime().toNanos() / speed);
+      var hash = 0x811c9dc5;
+      while (threads.getCurrentThreadCpuTime() - cpu < burn) {
+        for (int i = 0; i < 10_000; i++) hash = (hash ^ i) * 0x01000193;
+      }
+      var rest = (long) (profile.duration().toNanos() / speed) - (System.nanoTime() - start);
+      try {
+        if (rest > 0) TimeUnit.NANOSECONDS.sleep(rest);
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+        return -1;
+      }
+      print(out, profile.outChars());
+      print(err, profile.errChars());
+      printed.addAndGet(profile.outChars() + profile.errChars());
+      sink = hash;
+      return exitCodes ? profile.code() : 0;
+    }
+
+    private static void print(PrintWriter writer, int chars) {
+      var line = "x".repeat(79);
+      for (; chars >= 80; chars -= 80) writer.println(line);
+      if (chars > 0) writer.print(line.substring(0, chars));
+    }
+  }
+
+  record Measurement(
+      String mode,
+      int runs,
+      int failures,
+      double recordedBusy,
+      double recordedMakespan,
+      double makespan,
+      double cpuSeconds,
+      long peakHeap,
+      long outputChars) {
+
+    List<String> values() {
+      return List.of(
+          mode,
+          Integer.toString(runs),
+          Integer.toString(failures),
+          String.format(Locale.ROOT, "%.3f", recordedBusy),
+          String.format(Locale.ROOT, "%.3f", recordedMakespan),
+          String.format(Locale.ROOT, "%.3f", makespan),
+          String.format(Locale.ROOT, "%.3f", cpuSeconds),
+          Long.toString(peakHeap),
+          Long.toString(outputChars));
+    }
+
+    String toCsv() {
+      return String.join(",", values());
+    }
+
+    String toJson() {
+      var values = values();
+      var members = new ArrayList<String>();
+      for (int i = 0; i < COLUMNS.size(); i++) {
+        var value = i == 0 ? '"' + values.get(i) + '"' : values.get(i);
+        members.add('"' + COLUMNS.get(i) + "\":" + value);
+      }
+      return "{" + String.join(",", members) + "}";
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.bench;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.spi.ToolProvider;
+import jdk.tools.Command;
+import jdk.tools.Tool;
+import jdk.tools.ToolFinder;
+import jdk.tools.ToolPrinter;
+import jdk.tools.ToolRunner;
+
+/**
+ * Measures the overhead a tool runner adds to each run of a trivial in-process tool.
+ *
+ * <p>Run it with {@code java -p <modules> -m jdk.tools.bench/jdk.tools.bench.RunOverheadBench
+ * [--runs 200000] [--rounds 5]}. The tool prints nothing and has no weight, so the numbers reflect
+ * the bookkeeping of the runner only. For both {@code run}, discarding the result, and {@code
+ * call}, returning it, one JSON line per round with the average duration in nanoseconds and the
+ * average number of bytes allocated per run is written to the standard output stream. Start it
+ * with a flight recording enabling {@code jdk.tools.ToolRun} events to measure their cost.
+ */
+public final class RunOverheadBench {
+  public static void main(String... args) {
+    var runs = 200_000;
+    var rounds = 5;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "--runs" -> runs = Integer.parseInt(args[i + 1]);
+        case "--rounds" -> rounds = Integer.parseInt(args[i + 1]);
+        default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+      }
+    }
+    var tool = Tool.of(new Noop()).withWeight(Tool.Weight.NONE);
+    var silent = new PrintWriter(Writer.nullWriter());
+    var runner = ToolRunner.of(ToolFinder.of(tool), ToolPrinter.of(silent, silent));
+    var command = Command.of("noop").with("--alpha").with("--beta").with("gamma");
+    for (int round = 1; round <= rounds; round++) {
+      measure("run", round, runs, () -> runner.run(command));
+      measure("call", round, runs, () -> runner.call(command));
+    }
+  }
+
+  private static void measure(String mode, int round, int runs, Runnable run) {
+    var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    var bytes = threads.getCurrentThreadAllocatedBytes();
+    var start = System.nanoTime();
+    for (int i = 0; i < runs; i++) run.run();
+    var nanos = (double) (System.nanoTime() - start) / runs;
+    var allocated = (double) (threads.getCurrentThreadAllocatedBytes() - bytes) / runs;
+    System.out.println(
+        String.format(
+            Locale.ROOT,
+            "{\"mode\":\"%s\",\"round\":%d,\"runs\":%d,\"nanosPerRun\":%.0f,\"bytesPerRun\":%.0f}",
+            mode,
+            round,
+            runs,
+            nanos,
+            allocated));
+  }
+
+  /** A tool doing nothing. */
+  private record Noop() implements ToolProvider {
+    @Override
+    public String name() {
+      return "noop";
+    }
+
+    @Override
+    public int run(PrintWriter out, PrintWriter err, String... args) {
+      return 0;
+    }
+  }
+}
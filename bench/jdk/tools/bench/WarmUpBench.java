@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.bench;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import jdk.tools.ToolFinder;
+import jdk.tools.ToolPrinter;
+import jdk.tools.ToolRunner;
+
+/**
+ * Measures the duration of a small in-process {@code javac} run with and without a prior warm-up.
+ *
+ * <p>Run it with {@code java -p <modules> -m jdk.tools.bench/jdk.tools.bench.WarmUpBench [--rounds
+ * 10] [--runs 5]}. Each measurement launches a fresh virtual machine that optionally warms up the
+ * tools of a runner with the given number of rounds and then times a single compilation of one
+ * small source file. One JSON line with the average duration of that compilation in milliseconds
+ * in cold and in warmed-up virtual machines is written to the standard output stream.
+ */
+public final class WarmUpBench {
+  public static void main(String... args) throws Exception {
+    var rounds = 10;
+    var runs = 5;
+    var child = false;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "--rounds" -> rounds = Integer.parseInt(args[i + 1]);
+        case "--runs" -> runs = Integer.parseInt(args[i + 1]);
+        case "--child" -> child = Boolean.parseBoolean(args[i + 1]);
+        default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+      }
+    }
+    if (child) {
+      System.out.println(compile(rounds));
+      return;
+    }
+    var cold = measure(0, runs);
+    var warm = measure(rounds, runs);
+    System.out.println(
+        String.format(
+            Locale.ROOT,
+            "{\"rounds\":%d,\"runs\":%d,\"coldMillis\":%.1f,\"warmMillis\":%.1f}",
+            rounds,
+            runs,
+            cold,
+            warm));
+  }
+
+  // launch fresh virtual machines and return the average duration they report
+  private static double measure(int rounds, int runs) throws Exception {
+    var java = ProcessHandle.current().info().command().orElseThrow();
+    var command = new ArrayList<>(List.of(java, "-p", System.getProperty("jdk.module.path")));
+    command.addAll(List.of("-m", "jdk.tools.bench/" + WarmUpBench.class.getName()));
+    command.addAll(List.of("--rounds", Integer.toString(rounds), "--child", "true"));
+    var sum = 0.0;
+    for (int run = 0; run < runs; run++) {
+      var process = new ProcessBuilder(command).redirectErrorStream(true).start();
+      var output = new String(process.getInputStream().readAllBytes()).strip();
+      if (process.waitFor() != 0) throw new AssertionError("Child failed: " + output);
+      sum += Double.parseDouble(output);
+    }
+    return sum / runs;
+  }
+
+  // warm up the given number of rounds, then return the duration of one compilation
+  private static double compile(int rounds) throws Exception {
+    var silent = new PrintWriter(Writer.nullWriter());
+    var runner = ToolRunner.of(ToolFinder.of("javac"), ToolPrinter.of(silent, silent));
+    if (rounds > 0) runner.warmUp(rounds).join();
+    var folder = Files.createTempDirectory("jdk.tools-warm-up-bench-");
+    try {
+      var source = Files.writeString(folder.resolve("Hello.java"), "class Hello {}\n");
+      var classes = folder.resolve("classes").toString();
+      var start = System.nanoTime();
+      runner.run("javac", "-d", classes, source.toString());
+      return (System.nanoTime() - start) / 1e6;
+    } finally {
+      try (var files = Files.walk(folder)) {
+        for (var file : files.sorted((a, b) -> b.compareTo(a)).toList()) Files.delete(file);
+      }
+    }
+  }
+}
@@ -28,6 +28,9 @@ package jdk.tools;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.StringJoiner;
 import java.util.stream.Stream;
@@ -46,8 +49,16 @@ import java.util.stream.Stream;
  *
  * @param tool the name of the tool to run
  * @param arguments the commands of arguments to pass to the tool being run
+ * @param timeout the maximum time to wait for the tool run to complete, zero for the default
+ * @param weight the resources occupied by the tool run, or {@code null} for the tool's weight
+ * @param partition how trailing file arguments are split into concurrent runs, or {@code null}
  */
-public record Command(String tool, List<String> arguments) {
+public record Command(
+    String tool,
+    List<String> arguments,
+    Duration timeout,
+    Tool.Weight weight,
+    Partition partition) {
   public static Command of(String tool) {
     return new Command(tool);
   }
@@ -70,15 +81,19 @@ public record Command(String tool, List<String> arguments) {
     return new Command(tool).with(command.stream().skip(1).map(Command::trim));
   }
 
-  // line = "tool-name [tool-args...]"
+  // line = "tool-name [tool-args...]" with shell-style quoting, like: "javac -d 'out dir' X.java"
   public static Command ofCommandLine(String line) {
-    return Command.ofCommand(List.of(trim(line).split("\\s+")));
+    return Internal.parseCommandLine(line);
   }
 
   private static String trim(Object object) {
     return object.toString().trim();
   }
 
+  public Command(String tool, List<String> arguments) {
+    this(tool, arguments, Duration.ZERO, null, null);
+  }
+
   private Command(String tool, String... args) {
     this(tool, List.of(args));
   }
@@ -99,9 +114,13 @@ public record Command(String tool, List<String> arguments) {
     return joiner.toString();
   }
 
+  private Command withArguments(List<String> arguments) {
+    return new Command(tool, arguments, timeout, weight, partition);
+  }
+
   public Command with(Stream<?> objects) {
     var strings = objects.map(Command::trim);
-    return new Command(tool, Stream.concat(arguments.stream(), strings).toList());
+    return withArguments(Stream.concat(arguments.stream(), strings).toList());
   }
 
   public Command with(String[] arguments) {
@@ -139,13 +158,60 @@ public record Command(String tool, List<String> arguments) {
     }
   }
 
+  /**
+   * {@return a copy of this command with the given time limit, zero for the runner's default}
+   *
+   * @see ToolRunner.Context#timeout()
+   */
+  public Command withTimeout(Duration timeout) {
+    return new Command(tool, arguments, timeout, weight, partition);
+  }
+
+  public Command withWeight(Tool.Weight weight) {
+    return new Command(tool, arguments, timeout, weight, partition);
+  }
+
+  /**
+   * {@return a copy of this command splitting arguments added afterwards into concurrent runs}
+   *
+   * <p>Use this for tools processing each file argument independently, like formatters or
+   * linters: {@code Command.of("format").with("--replace").withPartition(8).withFindFiles(glob)}.
+   * File arguments are split by count into contiguous shards.
+   *
+   * @param shards the maximum number of concurrent runs, zero for the number of processors
+   */
+  public Command withPartition(int shards) {
+    return withPartition(new Partition(arguments.size(), shards, false));
+  }
+
+  /**
+   * {@return a copy of this command splitting arguments added afterwards into concurrent runs}
+   *
+   * <p>File arguments are split into shards of about the same accumulated file size.
+   *
+   * @param shards the maximum number of concurrent runs, zero for the number of processors
+   */
+  public Command withPartitionBySize(int shards) {
+    return withPartition(new Partition(arguments.size(), shards, true));
+  }
+
+  /** {@return a copy of this command using the given partition, {@code null} for none} */
+  public Command withPartition(Partition partition) {
+    return new Command(tool, arguments, timeout, weight, partition);
+  }
+
   public Command withTweak(Tweak tweak) {
     return tweak.tweak(this);
   }
 
   public Command withTweak(int position, Tweak tweak) {
-    var call = new Command(tool, List.of()).with(arguments.stream().limit(position));
-    return tweak.tweak(call).with(arguments.stream().skip(position));
+    var call = withArguments(List.of()).with(arguments.stream().limit(position));
+    var tweaked = tweak.tweak(call);
+    var inserted = tweaked.arguments.size() - position;
+    var result = tweaked.with(arguments.stream().skip(position));
+    if (partition == null || partition.position() < position || inserted == 0) return result;
+    var shifted = partition.position() + inserted;
+    return result.withPartition(new Partition(shifted, partition.shards(), partition.bySize()));
   }
 
   public Command withTweaks(Iterable<Tweak> tweaks) {
@@ -154,6 +220,69 @@ public record Command(String tool, List<String> arguments) {
     return tweaked;
   }
 
+  /**
+   * Describes how trailing file arguments of a command are split into shards run concurrently.
+   *
+   * <p>Each shard runs the tool with all leading arguments followed by its share of the file
+   * arguments. The exit code of a partitioned run is the first non-zero exit code of its shards,
+   * its captured output is the output of all shards in shard order.
+   *
+   * @param position the index of the first file argument
+   * @param shards the maximum number of shards, zero for the number of available processors
+   * @param bySize {@code true} to balance shards by file size, {@code false} by file count
+   */
+  public record Partition(int position, int shards, boolean bySize) {
+    public Partition {
+      if (position < 0) throw new IllegalArgumentException("Negative position: " + position);
+      if (shards < 0) throw new IllegalArgumentException("Negative shards: " + shards);
+    }
+
+    /** {@return the given file arguments split into balanced, non-empty shards} */
+    public List<List<String>> split(List<String> files) {
+      var count = shards == 0 ? Runtime.getRuntime().availableProcessors() : shards;
+      count = Math.max(1, Math.min(count, files.size()));
+      var result = new ArrayList<List<String>>(count);
+      if (!bySize) {
+        for (int i = 0; i < count; i++) {
+          var from = (int) ((long) files.size() * i / count);
+          var to = (int) ((long) files.size() * (i + 1) / count);
+          result.add(files.subList(from, to));
+        }
+        return List.copyOf(result);
+      }
+      // largest files first, each to the shard with the least accumulated size
+      var sizes = new long[files.size()];
+      for (int i = 0; i < sizes.length; i++) sizes[i] = size(files.get(i));
+      var indices = new ArrayList<Integer>(files.size());
+      for (int i = 0; i < sizes.length; i++) indices.add(i);
+      indices.sort(Comparator.comparingLong((Integer i) -> sizes[i]).reversed());
+      var totals = new long[count];
+      var counts = new int[count];
+      var assigned = new int[files.size()];
+      for (var index : indices) {
+        var shard = 0;
+        for (int i = 1; i < count; i++) {
+          var tie = totals[i] == totals[shard] && counts[i] < counts[shard];
+          if (totals[i] < totals[shard] || tie) shard = i;
+        }
+        totals[shard] += sizes[index];
+        counts[shard]++;
+        assigned[index] = shard;
+      }
+      for (int i = 0; i < count; i++) result.add(new ArrayList<>());
+      for (int i = 0; i < assigned.length; i++) result.get(assigned[i]).add(files.get(i));
+      return result.stream().map(List::copyOf).toList();
+    }
+
+    private static long size(String file) {
+      try {
+        return Files.size(Path.of(file));
+      } catch (Exception exception) {
+        return 0;
+      }
+    }
+  }
+
   /** Represents a unary operation on a command producing a new command with other arguments. */
   @FunctionalInterface
   public interface Tweak {
@@ -25,22 +25,56 @@
 
 package jdk.tools;
 
+import java.io.File;
 import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ServiceLoader;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.spi.ToolProvider;
 import java.util.stream.Stream;
+import jdk.tools.internal.BatchedOutput;
+import jdk.tools.internal.CommandReader;
 import jdk.tools.internal.CompositeToolFinder;
 import jdk.tools.internal.DefaultTask;
 import jdk.tools.internal.DefaultTool;
 import jdk.tools.internal.DefaultToolFinder;
 import jdk.tools.internal.DefaultToolRunner;
+import jdk.tools.internal.DefaultWorkerPool;
 import jdk.tools.internal.EmptyToolFinder;
+import jdk.tools.internal.FileTask;
+import jdk.tools.internal.FlatTask;
+import jdk.tools.internal.GraphScheduler;
+import jdk.tools.internal.HybridToolFinder;
+import jdk.tools.internal.InstallCoordinator;
+import jdk.tools.internal.JavacCoalescingTask;
+import jdk.tools.internal.ParallelJar;
+import jdk.tools.internal.PersistentProgram;
+import jdk.tools.internal.ProcessSampler;
+import jdk.tools.internal.ProgramToolFinder;
+import jdk.tools.internal.ResourceBudget;
+import jdk.tools.internal.ResourceUsage;
+import jdk.tools.internal.RunHistory;
 import jdk.tools.internal.StringPrintWriter;
+import jdk.tools.internal.TaskScope;
 import jdk.tools.internal.ToolRunEvent;
+import jdk.tools.internal.TraceRecorder;
+import jdk.tools.internal.WarmUp;
+import jdk.tools.internal.Watchdog;
 
 /** Package-private helper containing utility methods and accessors for internal implementations. */
 class Internal {
@@ -55,8 +89,41 @@ class Internal {
     return name.equals(string) || name.startsWith(string + '@');
   }
 
+  static String quoteArguments(String... args) {
+    return CommandReader.quote(args);
+  }
+
+  static Command parseCommandLine(String line) {
+    var reader = new CommandReader(new StringReader(line), null, false);
+    if (!reader.hasNext()) throw new IllegalArgumentException("Empty command");
+    return reader.next();
+  }
+
+  static ToolPrinter systemBatchedPrinter() {
+    return SystemBatchedPrinterHolder.PRINTER;
+  }
+
+  private static final class SystemBatchedPrinterHolder {
+    // print writers swallow exceptions of their streams, their error states are polled instead
+    static final ToolPrinter PRINTER =
+        newBatchedPrinter(
+            new PrintWriter(System.out),
+            new PrintWriter(System.err),
+            Duration.ofMillis(50),
+            64 * 1024);
+  }
+
+  static ToolPrinter newBatchedPrinter(Writer out, Writer err, Duration interval, int threshold) {
+    var output = new BatchedOutput(out, err, interval, threshold);
+    return ToolPrinter.of(output.out(), output.err());
+  }
+
   static PrintWriter newStringPrintWriter(PrintWriter other) {
-    return new StringPrintWriter(other);
+    return new StringPrintWriter(other, ToolResult.CAPTURE_LIMIT);
+  }
+
+  static long writtenLength(PrintWriter writer) {
+    return writer instanceof StringPrintWriter string ? string.length() : 0;
   }
 
   static Tool newTool(ToolProvider provider) {
@@ -68,7 +135,37 @@ class Internal {
   }
 
   static Tool newTool(String namespace, String name, ToolProvider provider) {
-    return new DefaultTool(namespace, name, provider);
+    return newTool(namespace, name, provider, estimateWeight(provider));
+  }
+
+  static Tool newTool(String namespace, String name, ToolProvider provider, Tool.Weight weight) {
+    return new DefaultTool(namespace, name, provider, weight);
+  }
+
+  static Tool.Weight estimateWeight(ToolProvider provider) {
+    if (provider instanceof ParallelJar) return Tool.Weight.ofMegabytes(1, 64);
+    if (provider instanceof ToolOperator) return Tool.Weight.NONE;
+    return switch (provider.name()) {
+      case "javac", "javadoc" -> Tool.Weight.ofMegabytes(1, 256);
+      case "jdeps", "jlink", "jmod", "jpackage" -> Tool.Weight.ofMegabytes(1, 128);
+      case "jar" -> Tool.Weight.ofMegabytes(1, 64);
+      default -> Tool.Weight.DEFAULT;
+    };
+  }
+
+  static ResourceBudget.Lease acquireResources(Tool tool, Tool.Weight weight) {
+    var provider = tool.provider();
+    var external =
+        provider instanceof Program
+            || provider instanceof Program.Pipeline
+            || provider instanceof Program.PersistentWorkers;
+    try {
+      return ResourceBudget.ofSystem().acquire(weight, external);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      var message = "Interrupted while waiting for resources to run " + tool.toNamespaceAndName();
+      throw new RuntimeException(message, exception);
+    }
   }
 
   static Task newTask(String namespace, String name, String... args) {
@@ -95,12 +192,56 @@ class Internal {
     return new DefaultTask(namespace, name, List.copyOf(commands));
   }
 
+  static Task newTask(String namespace, String name, Path file) {
+    return new FileTask(namespace, name, file);
+  }
+
+  static Task newFlatTask(Task task) {
+    return task instanceof FlatTask ? task : new FlatTask(task);
+  }
+
+  static Task newJavacCoalescingTask(Task task) {
+    return task instanceof JavacCoalescingTask ? task : new JavacCoalescingTask(task);
+  }
+
   static Task newTask(String namespace, String name, Command first, Command... more) {
     if (more.length == 0) return new DefaultTask(namespace, name, List.of(first));
     var commands = Stream.concat(Stream.of(first), Stream.of(more)).toList();
     return new DefaultTask(namespace, name, commands);
   }
 
+  static void runInParallel(ToolRunner runner, String name, Stream<Command> commands) {
+    var parallelism = GraphScheduler.defaultParallelism();
+    var spliterator = commands.spliterator();
+    if (spliterator.hasCharacteristics(Spliterator.SIZED)) {
+      // all commands are known in advance: start longest-running commands first
+      var nodes = new ArrayList<GraphScheduler.Node>();
+      spliterator.forEachRemaining(
+          command -> {
+            Runnable action = () -> runner.run(command);
+            nodes.add(new GraphScheduler.Node(action, List.of(command)));
+          });
+      GraphScheduler.run(name, nodes, parallelism);
+      return;
+    }
+    var iterator = Spliterators.iterator(spliterator);
+    try (var scope = new TaskScope(name, parallelism)) {
+      while (iterator.hasNext()) {
+        var command = iterator.next();
+        if (!scope.fork(() -> runner.run(command))) break;
+      }
+      scope.join();
+      scope.throwIfFailed();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while running " + name, exception);
+    }
+  }
+
+  static void recordDuration(Command command, long nanos) {
+    RunHistory.ofSystem().record(command, nanos);
+  }
+
   static ToolFinder newToolFinder(String... tools) {
     if (tools.length == 0) return emptyToolFinder();
     if (tools.length == 1) return Tool.of(tools[0]);
@@ -129,6 +270,131 @@ class Internal {
     return newToolFinder(tools);
   }
 
+  static final int WARM_UP_ROUNDS = WarmUp.DEFAULT_ROUNDS;
+
+  static CompletableFuture<Duration> warmUp(ToolFinder finder, ToolPrinter printer, int rounds) {
+    return WarmUp.start(finder, printer, rounds);
+  }
+
+  // -Djdk.tools.warmup=<rounds>
+  static void warmUpOnStartup(ToolRunner runner) {
+    var rounds = System.getProperty("jdk.tools.warmup");
+    if (rounds == null) return;
+    runner.warmUp(rounds.isBlank() ? WARM_UP_ROUNDS : Integer.parseInt(rounds.strip()));
+  }
+
+  static Executor asyncExecutor() {
+    return AsyncExecutorHolder.EXECUTOR;
+  }
+
+  private static final class AsyncExecutorHolder {
+    static final Executor EXECUTOR =
+        newDaemonThreadPool("jdk.tools-async", GraphScheduler.THREADS_PER_PROCESSOR);
+  }
+
+  private static ExecutorService newDaemonThreadPool(String name, int threadsPerProcessor) {
+    var threads = Runtime.getRuntime().availableProcessors() * threadsPerProcessor;
+    var counter = new AtomicInteger();
+    return Executors.newFixedThreadPool(
+        threads,
+        runnable -> {
+          var thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  static ToolFinder newProgramToolFinder() {
+    var path = System.getenv("PATH");
+    if (path == null || path.isBlank()) return emptyToolFinder();
+    var folders = Stream.of(path.split(File.pathSeparator)).filter(s -> !s.isBlank());
+    return newProgramToolFinder(folders.map(Path::of).distinct().toList());
+  }
+
+  static ToolFinder newProgramToolFinder(List<Path> folders) {
+    return new ProgramToolFinder(folders);
+  }
+
+  static ToolFinder newHybridToolFinder() {
+    var providers = newToolFinder(ServiceLoader.load(ToolProvider.class), __ -> true);
+    var folder = Path.of(System.getProperty("java.home", ""), "bin");
+    return new HybridToolFinder(providers, folder, newProgramToolFinder());
+  }
+
+  static ToolFinder installOnce(ToolInstaller installer, Path folder, String version)
+      throws Exception {
+    return InstallCoordinator.ofSystem().install(installer, folder, version);
+  }
+
+  static boolean isPartitioned(Command command) {
+    var partition = command.partition();
+    if (partition == null || partition.shards() == 1) return false;
+    return command.arguments().size() - partition.position() > 1;
+  }
+
+  static ToolResult callPartitioned(
+      ToolRunner runner, ToolPrinter printer, Tool tool, Command command) {
+    var partition = command.partition();
+    var arguments = command.arguments();
+    var position = Math.min(partition.position(), arguments.size());
+    var leading = arguments.subList(0, position);
+    var shards = partition.split(arguments.subList(position, arguments.size()));
+    var results = new ToolResult[shards.size()];
+    var start = Instant.now();
+    var nanos = System.nanoTime();
+    try (var scope = new TaskScope(tool.toNamespaceAndName(), shards.size())) {
+      for (int i = 0; i < shards.size(); i++) {
+        var index = i;
+        var shard = Stream.concat(leading.stream(), shards.get(i).stream()).toList();
+        var call = new Command(command.tool(), shard, command.timeout(), command.weight(), null);
+        scope.fork(() -> results[index] = runner.call(printer, tool, call));
+      }
+      scope.join();
+      scope.throwIfFailed();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      var message = "Interrupted while running " + tool.toNamespaceAndName();
+      throw new RuntimeException(message, exception);
+    }
+    var code = 0;
+    var timedOut = false;
+    var cpu = Duration.ZERO;
+    var allocated = 0L;
+    var peak = 0L; // shards run concurrently
+    var out = new StringJoiner("\n");
+    var err = new StringJoiner("\n");
+    for (var result : results) {
+      if (code == 0) code = result.code();
+      timedOut |= result.timedOut();
+      cpu = cpu.plus(result.usage().cpuTime());
+      allocated += result.usage().allocatedBytes();
+      peak += result.usage().peakResidentBytes();
+      if (!result.out().isEmpty()) out.add(result.out());
+      if (!result.err().isEmpty()) err.add(result.err());
+    }
+    var duration = Duration.ofNanos(System.nanoTime() - nanos);
+    var usage = new ToolResult.Usage(cpu, allocated, peak);
+    return new ToolResult(
+        tool, arguments, code, timedOut, out.toString(), err.toString(), start, duration, usage);
+  }
+
+  static ResourceUsage startResourceUsage(boolean measured) {
+    return measured ? ResourceUsage.start() : ResourceUsage.NONE;
+  }
+
+  static Program.PersistentWorkers newPersistentWorkers(
+      Program program, int size, List<String> arguments) {
+    return new PersistentProgram(program, size, arguments);
+  }
+
+  static ProcessSampler newProcessSampler() {
+    return new ProcessSampler();
+  }
+
+  static TraceRecorder traceRecorder() {
+    return TraceRecorder.ofSystem();
+  }
+
   static ToolRunEvent newToolRunEvent(Tool tool) {
     var event = new ToolRunEvent();
     event.namespace = tool.namespace();
@@ -154,7 +420,24 @@ class Internal {
   }
 
   static ToolRunner newToolRunner(ToolFinder finder, ToolPrinter printer) {
-    return new DefaultToolRunner(finder, printer);
+    return newToolRunner(finder, printer, Duration.ZERO, null);
+  }
+
+  static ToolRunner newToolRunner(
+      ToolFinder finder, ToolPrinter printer, Duration timeout, WorkerPool workers) {
+    return new DefaultToolRunner(finder, printer, timeout, workers);
+  }
+
+  static WorkerPool newWorkerPool(int size, int maxRuns, long maxHeap, List<String> options) {
+    return new DefaultWorkerPool(size, maxRuns, maxHeap, options);
+  }
+
+  static Watchdog newWatchdog(Duration timeout) {
+    return Watchdog.start(timeout);
+  }
+
+  static Duration expiredTimeout(Duration timeout) {
+    return Watchdog.expiredTimeout(timeout);
   }
 
   private Internal() {}
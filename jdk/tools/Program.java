@@ -26,21 +26,53 @@
 package jdk.tools;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.spi.ToolProvider;
 import java.util.stream.Stream;
 
-/** A tool provider implementation running operating system programs. */
-public record Program(String name, List<String> command) implements ToolProvider {
+/**
+ * A tool provider implementation running operating system programs.
+ *
+ * <p>Programs launching a Java virtual machine, like the tools found in the {@code bin} folder of
+ * a JDK, may use a dynamic class data sharing archive: if the archive file does not exist, the
+ * virtual machine creates it when the first run exits successfully. Subsequent runs load classes
+ * from the archive, which reduces their startup time. Setting the {@code jdk.tools.cds} system
+ * property to a folder enables archives for all programs found by {@link
+ * #findJavaDevelopmentKitTool(String, Object...)}.
+ *
+ * @param name the name of this tool provider
+ * @param command the program and its leading arguments
+ * @param timeout the maximum time to wait for the program to exit, zero for no time limit
+ * @param archive the path to the class data sharing archive file, or {@code null} for none
+ */
+public record Program(String name, List<String> command, Duration timeout, Path archive)
+    implements ToolProvider {
+  /** Time granted to a process tree for exiting gracefully before it is destroyed forcibly. */
+  public static final Duration DESTROY_GRACE_PERIOD = Duration.ofSeconds(3);
+
   public static Optional<ToolProvider> findJavaDevelopmentKitTool(String name, Object... args) {
-    return findInFolder(name, Path.of(System.getProperty("java.home", ""), "bin"), args);
+    var found = findInFolder(name, Path.of(System.getProperty("java.home", ""), "bin"), args);
+    // -Djdk.tools.cds=<folder>
+    var archives = System.getProperty("jdk.tools.cds");
+    if (archives == null) return found;
+    return found.map(program -> ((Program) program).withClassDataSharing(Path.of(archives)));
   }
 
   public static Optional<ToolProvider> findInFolder(String name, Path folder, Object... args) {
@@ -58,23 +90,283 @@ public record Program(String name, List<String> command) implements ToolProvider
     return Optional.of(new Program(name, List.copyOf(command)));
   }
 
+  public static Pipeline pipeline(String name, Program... stages) {
+    return new Pipeline(name, List.of(stages));
+  }
+
+  public static Pipeline pipeline(String name, ToolFinder finder, Command... commands) {
+    var stages = new ArrayList<Program>();
+    for (var command : commands) {
+      var found = finder.find(command.tool());
+      if (found.isEmpty()) throw new ToolNotFoundException(command.tool());
+      var tool = found.get();
+      if (!(tool.provider() instanceof Program program)) {
+        throw new IllegalArgumentException("Not a program: " + tool.toNamespaceAndName());
+      }
+      var arguments = Stream.concat(program.command.stream(), command.arguments().stream());
+      stages.add(new Program(program.name, arguments.toList(), program.timeout, program.archive));
+    }
+    return new Pipeline(name, stages);
+  }
+
+  public Program(String name, List<String> command) {
+    this(name, command, Duration.ZERO, null);
+  }
+
+  public Program withTimeout(Duration timeout) {
+    return new Program(name, command, timeout, archive);
+  }
+
+  /**
+   * {@return a copy of this program using a class data sharing archive stored in the given folder}
+   *
+   * <p>The archive file name is derived from the name of this program, the path and modification
+   * time of its executable, and the version of the runtime the executable belongs to. That version
+   * is read from the {@code release} file of the runtime image or, if there is none, from the
+   * output of running the executable with {@code -version}. This invalidates archives of a JDK
+   * that was replaced or updated.
+   */
+  public Program withClassDataSharing(Path folder) {
+    var executable = Path.of(command.get(0)).toAbsolutePath();
+    var modified = 0L;
+    try {
+      modified = Files.getLastModifiedTime(executable).toMillis();
+    } catch (IOException exception) {
+      // fall back to path and version
+    }
+    var version = readRuntimeVersion(executable);
+    var hash = Objects.hash(executable.toString(), modified, version);
+    var file = "%s-%08x.jsa".formatted(name, hash);
+    return new Program(name, command, timeout, folder.resolve(file));
+  }
+
+  // JAVA_RUNTIME_VERSION of "<image>/release" for "<image>/bin/<executable>", or "-version" output
+  private static String readRuntimeVersion(Path executable) {
+    var image = executable.getParent() == null ? null : executable.getParent().getParent();
+    var release = image == null ? null : image.resolve("release");
+    if (release != null && Files.isRegularFile(release)) {
+      try (var lines = Files.lines(release)) {
+        var version = lines.filter(line -> line.startsWith("JAVA_RUNTIME_VERSION=")).findFirst();
+        if (version.isPresent()) return version.get();
+      } catch (IOException | UncheckedIOException exception) {
+        // fall back to running the executable
+      }
+    }
+    try {
+      var process =
+          new ProcessBuilder(executable.toString(), "-version").redirectErrorStream(true).start();
+      var output = new String(process.getInputStream().readAllBytes());
+      if (!process.waitFor(10, TimeUnit.SECONDS)) process.destroyForcibly();
+      return output.strip();
+    } catch (IOException exception) {
+      return "";
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      return "";
+    }
+  }
+
+  /**
+   * {@return a tool provider running this program as long-lived processes}
+   *
+   * <p>Up to the given number of processes are launched on demand with the command of this
+   * program followed by the given start arguments, like {@code --persistent_worker}. The processes
+   * must implement the protocol described in {@link PersistentWorkers}. The time limit of this
+   * program applies to each request. Class data sharing is not applied.
+   *
+   * @param size the maximum number of concurrently running processes
+   * @param arguments the arguments passed when launching a process
+   */
+  public PersistentWorkers withPersistentWorkers(int size, String... arguments) {
+    return Internal.newPersistentWorkers(this, size, List.of(arguments));
+  }
+
   @Override
   public int run(PrintWriter out, PrintWriter err, String... arguments) {
     var builder = new ProcessBuilder(new ArrayList<>(command));
+    var dump = archive == null ? null : addClassDataSharingOption(builder.command());
     builder.command().addAll(List.of(arguments));
+    Process process = null;
+    var sampler = Internal.newProcessSampler();
     try {
-      var process = builder.start();
-      new Thread(new LinePrinter(process.getInputStream(), out), name + "-out").start();
-      new Thread(new LinePrinter(process.getErrorStream(), err), name + "-err").start();
-      return process.waitFor();
+      process = builder.start();
+      var printers =
+          List.of(
+              new Thread(new LinePrinter(process.getInputStream(), out), name + "-out"),
+              new Thread(new LinePrinter(process.getErrorStream(), err), name + "-err"));
+      printers.forEach(Thread::start);
+      if (!sampler.await(List.of(process), timeout)) {
+        destroyProcessTrees(List.of(process));
+        throw new ToolTimeoutException(name, timeout);
+      }
+      var code = process.exitValue();
+      for (var printer : printers) printer.join();
+      if (dump != null && code == 0 && Files.isRegularFile(dump)) {
+        Files.move(dump, archive, StandardCopyOption.REPLACE_EXISTING);
+      }
+      return code;
     } catch (InterruptedException exception) {
+      destroyProcessTrees(List.of(process));
+      Thread.currentThread().interrupt();
       return -1;
+    } catch (ToolTimeoutException exception) {
+      throw exception;
     } catch (Exception exception) {
       exception.printStackTrace(err);
       return 1;
+    } finally {
+      sampler.report();
+      if (dump != null) deleteIfExists(dump);
     }
   }
 
+  // use an existing archive or let the virtual machine dump one to a temporary file at exit
+  private Path addClassDataSharingOption(List<String> command) {
+    var executable = Path.of(command.get(0)).getFileName().toString();
+    var prefix = executable.equals("java") || executable.equals("java.exe") ? "" : "-J";
+    if (Files.isRegularFile(archive)) {
+      command.add(1, prefix + "-XX:SharedArchiveFile=" + archive);
+      return null;
+    }
+    try {
+      Files.createDirectories(archive.toAbsolutePath().getParent());
+    } catch (IOException exception) {
+      return null;
+    }
+    var dump = archive.resolveSibling(archive.getFileName() + "." + UUID.randomUUID() + ".tmp");
+    command.add(1, prefix + "-XX:ArchiveClassesAtExit=" + dump);
+    return dump;
+  }
+
+  private static void deleteIfExists(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException exception) {
+      // ignore
+    }
+  }
+
+  // request termination of the processes and their descendants, forcibly destroy the survivors
+  private static void destroyProcessTrees(List<Process> processes) {
+    var handles =
+        processes.stream()
+            .flatMap(process -> Stream.concat(process.descendants(), Stream.of(process.toHandle())))
+            .toList();
+    handles.forEach(ProcessHandle::destroy);
+    var interrupted = Thread.interrupted();
+    try {
+      var deadline = System.nanoTime() + DESTROY_GRACE_PERIOD.toNanos();
+      for (var handle : handles) {
+        var remaining = deadline - System.nanoTime();
+        if (remaining <= 0) break;
+        try {
+          handle.onExit().get(remaining, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | TimeoutException exception) {
+          break;
+        } catch (InterruptedException exception) {
+          interrupted = true;
+          break;
+        }
+      }
+    } finally {
+      handles.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+      if (interrupted) Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * A tool provider implementation running programs connected by operating system pipes.
+   *
+   * <p>The normal output of each stage is passed to the next stage without being read by the
+   * current virtual machine. Only the normal output of the last stage and the error output of all
+   * stages is written to the print writers passed to the {@link #run(PrintWriter, PrintWriter,
+   * String...)} method, whose arguments are appended to the command of the first stage. A message
+   * is printed to the error output for each stage that exited with a non-zero exit code, and the
+   * exit code of the last failed stage is returned. Use {@link #runStages(PrintWriter, PrintWriter,
+   * String...)} to get the exit codes of all stages. Time limits of stages are not applied.
+   *
+   * @param name the name of this tool provider
+   * @param stages the programs to run with normal output connected to the next stage's input
+   */
+  public record Pipeline(String name, List<Program> stages) implements ToolProvider {
+    public Pipeline {
+      if (stages.isEmpty()) throw new IllegalArgumentException("stages must not be empty");
+      stages = List.copyOf(stages);
+    }
+
+    @Override
+    public int run(PrintWriter out, PrintWriter err, String... arguments) {
+      var codes = runStages(out, err, arguments);
+      var code = 0;
+      for (int i = 0; i < codes.size(); i++) {
+        if (codes.get(i) == 0) continue;
+        var stage = stages.get(i).name();
+        err.printf("Stage %d (%s) exited with code %d%n", i + 1, stage, codes.get(i));
+        code = codes.get(i);
+      }
+      return code;
+    }
+
+    /**
+     * Runs all stages and returns their exit codes.
+     *
+     * @return the exit codes of all stages in stage order, all {@code -1} if interrupted and all
+     *     {@code 1} if the stages could not be started
+     */
+    public List<Integer> runStages(PrintWriter out, PrintWriter err, String... arguments) {
+      var builders = new ArrayList<ProcessBuilder>();
+      for (var stage : stages) builders.add(new ProcessBuilder(new ArrayList<>(stage.command)));
+      builders.get(0).command().addAll(List.of(arguments));
+      var processes = List.<Process>of();
+      var sampler = Internal.newProcessSampler();
+      try {
+        processes = ProcessBuilder.startPipeline(builders);
+        var printers = new ArrayList<Thread>();
+        var last = processes.get(processes.size() - 1);
+        printers.add(new Thread(new LinePrinter(last.getInputStream(), out), name + "-out"));
+        for (int i = 0; i < processes.size(); i++) {
+          var stream = processes.get(i).getErrorStream();
+          printers.add(new Thread(new LinePrinter(stream, err), name + "-err-" + (i + 1)));
+        }
+        printers.forEach(Thread::start);
+        var codes = new ArrayList<Integer>();
+        sampler.await(processes, Duration.ZERO);
+        for (var process : processes) codes.add(process.exitValue());
+        for (var printer : printers) printer.join();
+        return List.copyOf(codes);
+      } catch (InterruptedException exception) {
+        destroyProcessTrees(processes);
+        Thread.currentThread().interrupt();
+        return Collections.nCopies(stages.size(), -1);
+      } catch (Exception exception) {
+        exception.printStackTrace(err);
+        return Collections.nCopies(stages.size(), 1);
+      } finally {
+        sampler.report();
+      }
+    }
+  }
+
+  /**
+   * A tool provider running a program as long-lived processes handling one request at a time.
+   *
+   * <p>Requests are written to the standard input stream of a process and responses are read from
+   * its standard output stream. Integers are 32-bit big-endian values and strings are encoded as an
+   * integer length followed by that many UTF-8 bytes. A request consists of the number of arguments
+   * followed by the arguments. A response consists of the exit code, the normal output text, and
+   * the error output text of the request. Text written to the standard error stream of a process
+   * is passed to the standard error stream of the current process. A process exits when its
+   * standard input stream is closed.
+   *
+   * <p>A process that exits while handling a request is replaced and the request is sent once more
+   * to the new process.
+   */
+  public interface PersistentWorkers extends ToolProvider, AutoCloseable {
+    /** Closes all idle processes and those becoming idle, rejects further runs. */
+    @Override
+    void close();
+  }
+
   record LinePrinter(InputStream stream, PrintWriter writer) implements Runnable {
     @Override
     public void run() {
@@ -26,7 +26,9 @@
 package jdk.tools;
 
 import java.io.PrintWriter;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Stream;
 
 /** A tool operator extension for running an ordered collection of command instances. */
 @FunctionalInterface
@@ -45,21 +47,56 @@ public interface Task extends ToolOperator {
     return Internal.newTask(namespace, name, delimiter, args);
   }
 
+  // file = "jar --version + javac --version\njavadoc --version\n# comment\n..."
+  static Task of(String namespace, String name, Path file) {
+    return Internal.newTask(namespace, name, file);
+  }
+
   String ARGUMENT_DELIMITER = "+";
 
   String MODULE_NAME = "*";
 
   List<Command> commands();
 
+  /** {@return a stream of command instances, possibly produced while being consumed} */
+  default Stream<Command> stream() {
+    return commands().stream();
+  }
+
   default boolean parallel() {
     return false;
   }
 
+  /**
+   * {@return a task running compatible {@code javac} commands of this task as a single compilation}
+   *
+   * <p>Commands differing only in source files and output directory are merged into one call of
+   * the {@code javac} tool, diagnostics are attributed to the original commands. If a merged call
+   * fails, its original commands are run one by one to report their exact exit codes.
+   */
+  default Task coalesceJavacCommands() {
+    return Internal.newJavacCoalescingTask(this);
+  }
+
+  /**
+   * {@return a task running all commands of this task and of nested tasks as one global graph}
+   *
+   * <p>Commands referring to other tasks, directly or via a tool menu, are replaced by the commands
+   * of those tasks before running. Sequential tasks keep their order, parallel tasks contribute
+   * independent commands, identical commands run only once unless repeated in sequence, and
+   * cyclic references are rejected. Unlike running nested tasks recursively, commands of different
+   * nested tasks may run concurrently as soon as their dependencies completed.
+   */
+  default Task flatten() {
+    return Internal.newFlatTask(this);
+  }
+
   @Override
   default int run(ToolRunner runner, PrintWriter out, PrintWriter err, String... args) {
-    var commands = commands();
-    if (parallel()) commands.stream().parallel().forEach(runner::run);
-    else for (var command : commands) runner.run(command);
+    try (var commands = stream()) {
+      if (parallel()) Internal.runInParallel(runner, toNamespaceAndName(), commands);
+      else commands.forEachOrdered(runner::run);
+    }
     return 0;
   }
 }
@@ -51,6 +51,16 @@ public interface Tool extends ToolFinder {
 
   ToolProvider provider();
 
+  /** {@return the resources a run of this tool is expected to occupy} */
+  default Weight weight() {
+    return Internal.estimateWeight(provider());
+  }
+
+  /** {@return a copy of this tool descriptor with the given weight} */
+  default Tool withWeight(Weight weight) {
+    return Internal.newTool(namespace(), name(), provider(), weight);
+  }
+
   default String namespace() {
     return Internal.computeNamespace(provider());
   }
@@ -67,4 +77,27 @@ public interface Tool extends ToolFinder {
   default String toNamespaceAndName() {
     return namespace().isEmpty() ? name() : namespace() + '/' + name();
   }
+
+  /**
+   * Represents the resources a tool run is expected to occupy while running.
+   *
+   * @param cpus the number of processors kept busy, fractions denote mostly idle tool runs
+   * @param memory the estimated number of bytes of heap (in-process) or resident memory (program)
+   */
+  record Weight(double cpus, long memory) {
+    /** A weight that never defers a tool run, used by tool operators waiting for other tools. */
+    public static final Weight NONE = new Weight(0, 0);
+
+    /** The weight of a tool run keeping one processor busy with unknown memory usage. */
+    public static final Weight DEFAULT = new Weight(1, 0);
+
+    public Weight {
+      if (cpus < 0) throw new IllegalArgumentException("cpus must not be negative");
+      if (memory < 0) throw new IllegalArgumentException("memory must not be negative");
+    }
+
+    public static Weight ofMegabytes(double cpus, long megabytes) {
+      return new Weight(cpus, megabytes << 20);
+    }
+  }
 }
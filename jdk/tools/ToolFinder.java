@@ -25,6 +25,7 @@
 
 package jdk.tools;
 
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
 
@@ -51,6 +52,27 @@ public interface ToolFinder {
     return Internal.composeToolFinder(finders);
   }
 
+  /** {@return a tool finder exposing all executable files in {@code PATH} folders as programs} */
+  static ToolFinder ofPrograms() {
+    return Internal.newProgramToolFinder();
+  }
+
+  /** {@return a tool finder exposing all executable files in the given folders as programs} */
+  static ToolFinder ofPrograms(List<Path> folders) {
+    return Internal.newProgramToolFinder(folders);
+  }
+
+  /**
+   * {@return a tool finder preferring in-process tool providers over operating system programs}
+   *
+   * <p>Tools are searched for in the following order: tool providers found by the service loader,
+   * programs in the {@code bin} folder of the current JDK, and programs in {@code PATH} folders.
+   * The string representation of the returned finder lists all resolution decisions made so far.
+   */
+  static ToolFinder ofHybrid() {
+    return Internal.newHybridToolFinder();
+  }
+
   static ToolFinder empty() {
     return Internal.emptyToolFinder();
   }
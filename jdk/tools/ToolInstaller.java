@@ -6,6 +6,21 @@ import java.nio.file.Path;
 public interface ToolInstaller {
   ToolFinder install(Path folder, String version) throws Exception;
 
+  /**
+   * Installs a version of the tool into the given folder, at most once at a time.
+   *
+   * <p>Concurrent calls for the same namespace, name, version, and folder within this virtual
+   * machine share a single call of {@link #install(Path, String)} and receive the same tool finder.
+   * Installations into the same folder from other processes are serialized by a file lock.
+   *
+   * @param folder the folder to install into
+   * @param version the version of the tool to install
+   * @return the tool finder created by the shared installation
+   */
+  default ToolFinder installOnce(Path folder, String version) throws Exception {
+    return Internal.installOnce(this, folder, version);
+  }
+
   default String namespace() {
     return Internal.computeNamespace(getClass());
   }
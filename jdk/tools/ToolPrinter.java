@@ -26,7 +26,10 @@
 package jdk.tools;
 
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.lang.System.Logger.Level;
+import java.time.Duration;
+import java.util.function.Supplier;
 
 /** A wrapper for standard output streams. */
 public record ToolPrinter(PrintWriter out, PrintWriter err, Level threshold) {
@@ -36,6 +39,40 @@ public record ToolPrinter(PrintWriter out, PrintWriter err, Level threshold) {
     return ToolPrinter.of(out, err);
   }
 
+  /**
+   * {@return a printer writing to the standard output streams asynchronously in batches}
+   *
+   * <p>Pending text is written every 50 milliseconds, as soon as 64 K characters are pending, and
+   * immediately after text was written to the error stream. All calls return the same printer,
+   * its writers need not be closed.
+   *
+   * @see #ofBatched(Writer, Writer, Duration, int)
+   */
+  public static ToolPrinter ofSystemBatched() {
+    return Internal.systemBatchedPrinter();
+  }
+
+  /**
+   * {@return a printer writing to the given writers asynchronously in batches}
+   *
+   * <p>Text printed to the writers of the returned printer is queued without blocking on I/O and
+   * written by a dedicated thread in large chunks, preserving the order of the two streams. The
+   * thread writes and flushes pending text after the given interval, as soon as the given number
+   * of characters is pending, immediately after text was written to the error stream, and on
+   * shutdown of the virtual machine. Writers block while four times the given number of characters
+   * is pending. Flushing a writer of the returned printer does not wait for the text to be
+   * written, closing it does. Closing both writers releases the thread, failures of the given
+   * writers are reported by {@link PrintWriter#checkError()} of the writers of the printer.
+   *
+   * @param out the target of normal output
+   * @param err the target of error output
+   * @param interval the maximum time text is pending
+   * @param threshold the number of pending characters that triggers writing
+   */
+  public static ToolPrinter ofBatched(Writer out, Writer err, Duration interval, int threshold) {
+    return Internal.newBatchedPrinter(out, err, interval, threshold);
+  }
+
   public static ToolPrinter of(PrintWriter out, PrintWriter err) {
     return new ToolPrinter(out, err, Level.INFO);
   }
@@ -44,14 +81,30 @@ public record ToolPrinter(PrintWriter out, PrintWriter err, Level threshold) {
     return new ToolPrinter(out, err, threshold);
   }
 
+  /** {@return {@code true} if messages of the given level pass the threshold of this printer} */
+  public boolean isLoggable(Level level) {
+    if (threshold == Level.OFF) return false;
+    return threshold.getSeverity() <= level.getSeverity();
+  }
+
   public void debug(String message) {
     println(Level.DEBUG, message);
   }
 
+  /** Prints a debug message, supplied only if it passes the threshold of this printer. */
+  public void debug(Supplier<String> message) {
+    println(Level.DEBUG, message);
+  }
+
   public void println(Level level, String message) {
-    if (threshold == Level.OFF) return;
-    if (threshold.getSeverity() > level.getSeverity()) return;
+    if (!isLoggable(level)) return;
     var printer = level.getSeverity() >= Level.WARNING.getSeverity() ? err : out;
     printer.println(message);
   }
+
+  /** Prints a message, supplied only if it passes the threshold of this printer. */
+  public void println(Level level, Supplier<String> message) {
+    if (!isLoggable(level)) return;
+    println(level, message.get());
+  }
 }
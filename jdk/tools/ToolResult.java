@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Represents the outcome of a tool run.
+ *
+ * <p>Captured output texts are stripped and bounded in size: text exceeding {@link #CAPTURE_LIMIT}
+ * characters is truncated and marked as such.
+ *
+ * @param tool the tool that was run
+ * @param arguments the arguments passed to the tool
+ * @param code the exit code returned by the tool, or {@code -1} if the tool was stopped before
+ *     returning one; a tool that returned after its time limit expired keeps its exit code, use
+ *     {@link #timedOut()} to detect expired time limits
+ * @param timedOut {@code true} if the run did not complete within its time limit
+ * @param out the captured normal output
+ * @param err the captured error output
+ * @param start the instant the run started
+ * @param duration the time elapsed between the start and the end of the run
+ * @param usage the resources used by the run
+ */
+public record ToolResult(
+    Tool tool,
+    List<String> arguments,
+    int code,
+    boolean timedOut,
+    String out,
+    String err,
+    Instant start,
+    Duration duration,
+    Usage usage) {
+  /** The maximum number of characters captured per output stream of a tool run. */
+  public static final int CAPTURE_LIMIT = 64 * 1024;
+
+  /** {@return {@code true} if the tool run completed in time and returned exit code zero} */
+  public boolean isSuccessful() {
+    return code == 0 && !timedOut;
+  }
+
+  /**
+   * Represents resources used by a tool run.
+   *
+   * <p>For in-process runs, CPU time and allocated bytes are measured on the running thread and
+   * include nested runs on that thread. For programs, CPU time and peak resident memory of the
+   * process and its descendants are sampled while the run waits for them, CPU time used after the
+   * last sample is only included where the operating system attributes it. Values that can't be
+   * measured on the current platform are zero.
+   *
+   * @param cpuTime the CPU time used by the running thread and by processes
+   * @param allocatedBytes the number of heap bytes allocated by the running thread
+   * @param peakResidentBytes the largest sampled resident memory of processes in bytes
+   */
+  public record Usage(Duration cpuTime, long allocatedBytes, long peakResidentBytes) {
+    /** No resources used, or not measured. */
+    public static final Usage NONE = new Usage(Duration.ZERO, 0, 0);
+  }
+}
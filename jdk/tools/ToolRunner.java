@@ -25,7 +25,13 @@
 
 package jdk.tools;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.spi.ToolProvider;
 
 /** A runner of tools providing default implementations. */
@@ -36,19 +42,32 @@ public interface ToolRunner {
     ToolFinder finder();
 
     ToolPrinter printer();
+
+    /**
+     * {@return the default time limit for each tool run, zero for no time limit}
+     *
+     * <p>Programs are destroyed when their time limit expires. In-process tools are interrupted
+     * but not stopped: a tool ignoring interrupts runs to completion, and its run is reported as
+     * timed out only after it returned.
+     */
+    default Duration timeout() {
+      return Duration.ZERO;
+    }
+
+    /** {@return the pool of worker virtual machines to dispatch tool runs to, if any} */
+    default Optional<WorkerPool> workers() {
+      return Optional.empty();
+    }
   }
 
   Context context();
 
   default void run(Command command) {
-    run(command.tool(), command.toArray());
+    run(context().printer(), find(command.tool()), command);
   }
 
   default void run(String tool, String... args) {
-    var finder = context().finder();
-    var found = finder.find(tool);
-    if (found.isEmpty()) throw new ToolNotFoundException(tool);
-    run(found.get(), args);
+    run(find(tool), args);
   }
 
   default void run(Tool tool, String... args) {
@@ -56,39 +75,214 @@ public interface ToolRunner {
   }
 
   default void run(ToolPrinter printer, Tool tool, String... args) {
-    var event = Internal.newToolRunEvent(tool);
+    run(printer, tool, new Command(tool.name(), List.of(args)));
+  }
 
-    event.args = String.join(" ", args);
+  default void run(ToolPrinter printer, Tool tool, Command command) {
+    var result =
+        Internal.isPartitioned(command)
+            ? call(printer, tool, command)
+            : call(printer, tool, command, false);
+    var name = tool.toNamespaceAndName();
+    if (result.timedOut()) {
+      // an expired enclosing time limit is still open, report it instead of the one of the command
+      throw new ToolTimeoutException(name, Internal.expiredTimeout(timeout(command)));
+    }
+    if (result.code() == 0) return;
+    var message = "Tool %s returned exit code: %d".formatted(name, result.code());
+    throw new RuntimeException(message);
+  }
 
-    printer.debug("| " + event.name + " " + event.args);
-    event.begin();
+  /** {@return the result of running the given command, without throwing on failed runs} */
+  default ToolResult call(Command command) {
+    return call(context().printer(), find(command.tool()), command);
+  }
+
+  /** {@return the result of running the given tool, without throwing on failed runs} */
+  default ToolResult call(ToolPrinter printer, Tool tool, Command command) {
+    if (Internal.isPartitioned(command)) {
+      return Internal.callPartitioned(this, printer, tool, command);
+    }
+    return call(printer, tool, command, true);
+  }
+
+  /**
+   * Runs the given tool, capturing its output only if requested or needed by a run event.
+   *
+   * <p>Joining arguments, formatting debug messages, and copying output texts is skipped unless
+   * the run event, the trace recorder, or the printer threshold asks for it. Results of runs not
+   * captured carry empty output texts and no resource usage; processes they wait for report their
+   * usage to the enclosing measurement, if any.
+   */
+  private ToolResult call(ToolPrinter printer, Tool tool, Command command, boolean capture) {
+    var args = command.toArray();
+    var timeout = timeout(command);
+    var weight = command.weight() == null ? tool.weight() : command.weight();
+    var event = Internal.newToolRunEvent(tool);
+    var trace = Internal.traceRecorder();
+    var described = event.isEnabled() || trace.enabled();
+    if (described) event.args = Internal.quoteArguments(args);
+    printer.debug(() -> "| " + tool.name() + " " + String.join(" ", args));
+    var waiting = trace.begin();
+    var lease = Internal.acquireResources(tool, weight);
     try {
-      var out = Internal.newStringPrintWriter(printer.out());
-      var err = Internal.newStringPrintWriter(printer.err());
-      var provider = tool.provider();
-      var loader = provider.getClass().getClassLoader();
-      Thread.currentThread().setContextClassLoader(loader);
-      event.code =
-          provider instanceof ToolOperator operator
-              ? operator.run(this, out, err, args)
-              : provider.run(out, err, args);
-      event.end();
-      if (out.checkError()) System.err.println("The normal output stream had troubles");
-      if (err.checkError()) System.err.println("The errors output stream had troubles");
-      event.out = out.toString().strip();
-      event.err = err.toString().strip();
-      if (event.code == 0) return;
+      if (described) trace.end("wait " + tool.name(), "queue", waiting);
+      var captured = capture || event.isEnabled();
+      var out = captured ? Internal.newStringPrintWriter(printer.out()) : printer.out();
+      var err = captured ? Internal.newStringPrintWriter(printer.err()) : printer.err();
+      var code = 0;
+      var timedOut = false;
+      var start = Instant.now();
+      var nanos = System.nanoTime();
+      var running = trace.begin();
+      // nobody reads the usage of runs whose result is discarded and whose event is disabled
+      var usage = Internal.startResourceUsage(captured);
+      event.begin();
+      try (var watchdog = Internal.newWatchdog(timeout)) {
+        try {
+          var provider = tool.provider();
+          var loader = provider.getClass().getClassLoader();
+          Thread.currentThread().setContextClassLoader(loader);
+          var workers = context().workers();
+          if (provider instanceof ToolOperator operator) {
+            code = operator.run(this, out, err, args);
+          } else if (workers.isPresent() && workers.get().supports(tool)) {
+            code = workers.get().run(tool, out, err, args);
+          } else {
+            code = provider.run(out, err, args);
+          }
+        } catch (ToolTimeoutException exception) {
+          code = -1;
+          timedOut = true;
+        } catch (RuntimeException exception) {
+          // operators fail when interrupted, like parallel tasks, map that to a time out
+          if (!watchdog.expiredInScope()) throw exception;
+          code = -1;
+          timedOut = true;
+        }
+        event.end();
+        // an expired enclosing watchdog interrupted this run, report it as timed out as well
+        if (watchdog.expiredInScope()) timedOut = true;
+      } finally {
+        usage.stop();
+        if (described) {
+          trace.end(tool.name(), "run", running, "args", event.args, "code", "" + code);
+        }
+        var draining = trace.begin();
+        if (out.checkError()) System.err.println("The normal output stream had troubles");
+        if (err.checkError()) System.err.println("The errors output stream had troubles");
+        if (event.shouldCommit()) {
+          event.code = code;
+          event.timedOut = timedOut;
+          event.cpuTime = usage.cpuTime();
+          event.allocated = usage.allocatedBytes();
+          event.peakResident = usage.peakResidentBytes();
+          event.out = captured ? out.toString().strip() : "";
+          event.err = captured ? err.toString().strip() : "";
+          event.outLength = captured ? Internal.writtenLength(out) : 0;
+          event.errLength = captured ? Internal.writtenLength(err) : 0;
+          event.commit();
+        }
+        if (described) trace.end("drain " + tool.name(), "drain", draining);
+      }
+      var duration = Duration.ofNanos(System.nanoTime() - nanos);
+      Internal.recordDuration(command, duration.toNanos());
+      var cpuTime = Duration.ofNanos(usage.cpuTime());
+      return new ToolResult(
+          tool,
+          command.arguments(),
+          code,
+          timedOut,
+          capture ? out.toString().strip() : "",
+          capture ? err.toString().strip() : "",
+          start,
+          duration,
+          new ToolResult.Usage(cpuTime, usage.allocatedBytes(), usage.peakResidentBytes()));
     } finally {
-      event.commit();
+      lease.close();
     }
-    var message = "Tool %s returned exit code: %d".formatted(tool.toNamespaceAndName(), event.code);
-    throw new RuntimeException(message);
+  }
+
+  /**
+   * {@return a future completing with the result of running the given command}
+   *
+   * <p>The command runs on a shared pool of daemon threads, sized to a multiple of the available
+   * processors. Each run blocks its pool thread until the tool returns, a program run until its
+   * process exited, so runs exceeding the size of the pool wait in its queue.
+   *
+   * @see #runAsync(Command, Executor)
+   */
+  default CompletableFuture<ToolResult> runAsync(Command command) {
+    return runAsync(command, Internal.asyncExecutor());
+  }
+
+  /**
+   * {@return a future completing with the result of running the given command}
+   *
+   * <p>The command runs on a thread of the given executor, which is blocked until the run
+   * completed.
+   */
+  default CompletableFuture<ToolResult> runAsync(Command command, Executor executor) {
+    return CompletableFuture.supplyAsync(() -> call(command), executor);
+  }
+
+  /**
+   * Starts warming up in-process tools of this runner on a low-priority background thread.
+   *
+   * <p>Synthetic workloads, like compiling a small generated source set and packaging it, are run
+   * repeatedly to bring the code of the tools to a compiled state before real invocations use
+   * them.
+   *
+   * @return a future completing with the duration of the warm-up
+   */
+  default CompletableFuture<Duration> warmUp() {
+    return warmUp(Internal.WARM_UP_ROUNDS);
+  }
+
+  /**
+   * Starts warming up in-process tools of this runner on a low-priority background thread.
+   *
+   * @param rounds the number of times each synthetic workload is run
+   * @return a future completing with the duration of the warm-up
+   */
+  default CompletableFuture<Duration> warmUp(int rounds) {
+    var context = context();
+    return Internal.warmUp(context.finder(), context.printer(), rounds);
+  }
+
+  private Duration timeout(Command command) {
+    return command.timeout().isZero() ? context().timeout() : command.timeout();
+  }
+
+  private Tool find(String tool) {
+    var trace = Internal.traceRecorder();
+    var begin = trace.begin();
+    var finder = context().finder();
+    var found = finder.find(tool);
+    trace.end("lookup " + tool, "lookup", begin);
+    if (found.isEmpty()) throw new ToolNotFoundException(tool);
+    return found.get();
+  }
+
+  /** {@return a copy of this runner using the given default time limit for each tool run} */
+  default ToolRunner withTimeout(Duration timeout) {
+    var context = context();
+    var workers = context.workers().orElse(null);
+    return Internal.newToolRunner(context.finder(), context.printer(), timeout, workers);
+  }
+
+  /** {@return a copy of this runner dispatching tool runs to the given pool of workers} */
+  default ToolRunner withWorkerPool(WorkerPool workers) {
+    var context = context();
+    return Internal.newToolRunner(context.finder(), context.printer(), context.timeout(), workers);
   }
 
   static ToolRunner ofSystem() {
     var loader = ServiceLoader.load(ToolProvider.class);
     var finder = Internal.newToolFinder(loader, __ -> true);
-    return ToolRunner.of(finder);
+    var runner = ToolRunner.of(finder);
+    Internal.warmUpOnStartup(runner);
+    return runner;
   }
 
   static ToolRunner of(ToolFinder finder) {
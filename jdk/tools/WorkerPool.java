@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools;
+
+import java.io.PrintWriter;
+import java.util.List;
+
+/**
+ * A pool of long-lived virtual machines running tools isolated from the current virtual machine.
+ *
+ * <p>Each worker virtual machine is launched with the same module path and class path as the
+ * current one, runs one tool at a time, and streams the output of that tool back. A worker is
+ * recycled after it completed a given number of tool runs or when its used heap exceeds a given
+ * size. Tools are located in a worker by the class and name of their tool provider: providers
+ * must be registered as services or be public classes with a public no-argument constructor.
+ * Tool runs that can't be located in a worker are run in the current virtual machine.
+ */
+public interface WorkerPool extends AutoCloseable {
+  static WorkerPool of(int size) {
+    return WorkerPool.of(size, 100, 1L << 30, List.of());
+  }
+
+  static WorkerPool of(int size, int maxRuns, long maxHeap, List<String> options) {
+    return Internal.newWorkerPool(size, maxRuns, maxHeap, options);
+  }
+
+  /** {@return {@code true} if the given tool may be run by a worker of this pool} */
+  boolean supports(Tool tool);
+
+  /** Runs the given tool in a worker, blocking until a worker is available. */
+  int run(Tool tool, PrintWriter out, PrintWriter err, String... args);
+
+  /** Stops all workers of this pool, workers currently running a tool stop after the run. */
+  @Override
+  void close();
+}
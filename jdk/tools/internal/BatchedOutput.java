@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Forwards text written to two writers asynchronously in large batches to their targets.
+ *
+ * <p>Text written to the {@link #out()} and {@link #err()} writers is appended to a shared
+ * lock-free queue and written to the target writers by a dedicated daemon thread, preserving the
+ * order of both streams relative to each other. The thread writes and flushes all queued text
+ * after the given interval, as soon as the given number of characters is pending, and immediately
+ * after text was written to the error stream. Writers block while four times the given number of
+ * characters is pending. Flushing one of the writers only wakes up the thread, closing one of them
+ * waits until all text queued so far has been written. Closing both of them stops the thread, text
+ * written afterwards is written through. Pending text is written on shutdown of the virtual
+ * machine.
+ *
+ * <p>Failures of the targets are reported by the writers throwing, and thus by {@link
+ * PrintWriter#checkError()} of the writers. Targets swallowing exceptions themselves, like print
+ * writers and print streams, are polled for errors after each flush.
+ */
+public final class BatchedOutput {
+  /** A piece of text written to one of the streams. */
+  record Chunk(boolean error, String text) {}
+
+  private final Writer out;
+  private final Writer err;
+  private final long interval;
+  private final int threshold;
+  private final Queue<Chunk> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicLong pending = new AtomicLong();
+  private final AtomicLong enqueued = new AtomicLong();
+  private final Thread thread;
+  private final Thread hook;
+  private final AtomicLong open = new AtomicLong(2); // channels not closed yet
+  private final PrintWriter outWriter;
+  private final PrintWriter errWriter;
+  private long written; // guarded by this
+  private volatile boolean stopped;
+  private volatile boolean failed;
+
+  public BatchedOutput(Writer out, Writer err, Duration interval, int threshold) {
+    if (interval.isNegative() || interval.isZero()) {
+      throw new IllegalArgumentException("Interval must be positive: " + interval);
+    }
+    if (threshold < 1) {
+      throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+    }
+    this.out = out;
+    this.err = err;
+    this.interval = interval.toNanos();
+    this.threshold = threshold;
+    this.outWriter = new PrintWriter(new Channel(false));
+    this.errWriter = new PrintWriter(new Channel(true));
+    this.thread = new Thread(this::loop, "jdk.tools-batched-output");
+    thread.setDaemon(true);
+    thread.start();
+    this.hook = new Thread(this::stop, "jdk.tools-batched-output-drain");
+    Runtime.getRuntime().addShutdownHook(hook);
+  }
+
+  public PrintWriter out() {
+    return outWriter;
+  }
+
+  public PrintWriter err() {
+    return errWriter;
+  }
+
+  /** Waits until all text queued before this call has been written to the targets. */
+  public void drain() {
+    var target = enqueued.get();
+    if (stopped || Thread.currentThread() == thread) return;
+    LockSupport.unpark(thread);
+    synchronized (this) {
+      var interrupted = false;
+      while (written < target && !stopped) {
+        try {
+          wait();
+        } catch (InterruptedException exception) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Writes all pending text, stops the thread, and removes the shutdown hook. */
+  public void close() {
+    stop();
+    try {
+      Runtime.getRuntime().removeShutdownHook(hook);
+    } catch (IllegalStateException exception) {
+      // the virtual machine is shutting down, the hook is running or has run
+    }
+  }
+
+  private void enqueue(boolean error, String text) {
+    if (stopped) { // after shutdown, write through
+      synchronized (queue) {
+        write(error, text);
+        flush();
+      }
+      return;
+    }
+    queue.add(new Chunk(error, text));
+    enqueued.incrementAndGet();
+    var chars = pending.addAndGet(text.length());
+    if (chars >= threshold || error) LockSupport.unpark(thread);
+    if (stopped) { // shutdown began while enqueuing
+      synchronized (queue) {
+        writeQueued();
+      }
+    }
+    if (chars >= 4L * threshold) awaitBelowHighWaterMark();
+  }
+
+  private void awaitBelowHighWaterMark() {
+    if (Thread.currentThread() == thread) return;
+    synchronized (this) {
+      var interrupted = false;
+      while (pending.get() >= 4L * threshold && !stopped) {
+        try {
+          wait();
+        } catch (InterruptedException exception) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) Thread.currentThread().interrupt();
+    }
+  }
+
+  private void loop() {
+    while (!stopped) {
+      LockSupport.parkNanos(this, interval);
+      synchronized (queue) {
+        writeQueued();
+      }
+    }
+  }
+
+  private void stop() {
+    stopped = true;
+    LockSupport.unpark(thread);
+    synchronized (queue) {
+      writeQueued();
+    }
+    synchronized (this) {
+      notifyAll();
+    }
+  }
+
+  // writes consecutive chunks of the same stream as one batch, then flushes both targets
+  private void writeQueued() {
+    var count = 0L;
+    var chars = 0L;
+    var batch = new StringBuilder();
+    var error = false;
+    for (var chunk = queue.poll(); chunk != null; chunk = queue.poll()) {
+      if (chunk.error() != error && !batch.isEmpty()) {
+        write(error, batch.toString());
+        flush(); // keeps the order of both streams if they share a destination
+        batch.setLength(0);
+      }
+      error = chunk.error();
+      batch.append(chunk.text());
+      chars += chunk.text().length();
+      count++;
+    }
+    if (count == 0) return;
+    if (!batch.isEmpty()) write(error, batch.toString());
+    flush();
+    pending.addAndGet(-chars);
+    synchronized (this) {
+      written += count;
+      notifyAll();
+    }
+  }
+
+  private void write(boolean error, String text) {
+    try {
+      (error ? err : out).write(text);
+    } catch (IOException exception) {
+      failed = true;
+    }
+  }
+
+  private void flush() {
+    try {
+      out.flush();
+      err.flush();
+    } catch (IOException exception) {
+      failed = true;
+    }
+    if (hasError(out) || hasError(err)) failed = true;
+  }
+
+  // print writers and print streams swallow exceptions, poll their error states
+  private static boolean hasError(Writer writer) {
+    return writer instanceof PrintWriter printer && printer.checkError();
+  }
+
+  /** A writer appending text to the queue, reporting write failures of the targets. */
+  private final class Channel extends Writer {
+    private final boolean error;
+
+    Channel(boolean error) {
+      this.error = error;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+      if (length == 0) return;
+      enqueue(error, new String(chars, offset, length));
+      if (failed) throw new IOException("Writing batched output failed");
+    }
+
+    @Override
+    public void write(String string, int offset, int length) throws IOException {
+      if (length == 0) return;
+      enqueue(error, string.substring(offset, offset + length));
+      if (failed) throw new IOException("Writing batched output failed");
+    }
+
+    @Override
+    public void flush() throws IOException {
+      LockSupport.unpark(thread);
+      if (failed) throw new IOException("Writing batched output failed");
+    }
+
+    @Override
+    public void close() throws IOException {
+      drain();
+      if (open.decrementAndGet() == 0) BatchedOutput.this.close();
+      if (failed) throw new IOException("Writing batched output failed");
+    }
+  }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.StringJoiner;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import jdk.tools.Command;
+
+/**
+ * Reads command instances from a character stream using shell-style quoting rules.
+ *
+ * <p>Arguments are separated by unquoted whitespace. Single quotes preserve all enclosed
+ * characters literally, double quotes allow {@code \"} and {@code \\} escapes, and a backslash
+ * outside of quotes escapes the next character. A backslash followed by a line break continues the
+ * current line. An argument equal to the delimiter terminates the current command unless any of
+ * its characters was quoted or escaped, like {@code '+'} or {@code \+}. In line mode, a line break
+ * also terminates the current command and an unquoted {@code #} at the start of an argument begins
+ * a comment that extends to the end of the line.
+ *
+ * <p>Commands are parsed on demand, one at a time, using a fixed-size buffer: a caller may start
+ * running the first command before the rest of the input was read.
+ */
+public final class CommandReader implements Iterator<Command>, Closeable {
+  public static Stream<Command> lines(Path file, String delimiter) {
+    try {
+      var reader = new CommandReader(Files.newBufferedReader(file), delimiter, true);
+      var spliterator =
+          Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL);
+      return StreamSupport.stream(spliterator, false).onClose(reader::close);
+    } catch (IOException exception) {
+      throw new UncheckedIOException("Open failed: " + file, exception);
+    }
+  }
+
+  /**
+   * {@return the given arguments joined by spaces, quoted to be read back unchanged}
+   *
+   * <p>Arguments consisting of safe characters only are kept as they are, all others are enclosed
+   * in single quotes, with embedded single quotes escaped outside of them.
+   */
+  public static String quote(String... arguments) {
+    var joiner = new StringJoiner(" ");
+    for (var argument : arguments) {
+      if (!argument.isEmpty() && argument.chars().allMatch(CommandReader::isSafe)) {
+        joiner.add(argument);
+        continue;
+      }
+      joiner.add("'" + argument.replace("'", "'\\''") + "'");
+    }
+    return joiner.toString();
+  }
+
+  private static boolean isSafe(int c) {
+    return Character.isLetterOrDigit(c) || "+-./:=@_,%^".indexOf(c) >= 0;
+  }
+
+  private static final int EOF = -1;
+
+  private final Reader reader;
+  private final String delimiter;
+  private final boolean lineMode;
+  private final char[] buffer = new char[8192];
+  private final StringBuilder token = new StringBuilder();
+  private final List<String> elements = new ArrayList<>();
+  private int position;
+  private int limit;
+  private int line = 1;
+  private Command next;
+
+  /**
+   * Creates a command reader.
+   *
+   * @param reader the source of characters to parse
+   * @param delimiter the unquoted argument separating commands, or {@code null} for none
+   * @param lineMode {@code true} to treat line breaks as command separators and enable comments
+   */
+  public CommandReader(Reader reader, String delimiter, boolean lineMode) {
+    this.reader = reader;
+    this.delimiter = delimiter;
+    this.lineMode = lineMode;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) next = readCommand();
+    return next != null;
+  }
+
+  @Override
+  public Command next() {
+    if (!hasNext()) throw new NoSuchElementException();
+    var command = next;
+    next = null;
+    return command;
+  }
+
+  @Override
+  public void close() {
+    try {
+      reader.close();
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  private Command readCommand() {
+    while (true) {
+      var end = readElements();
+      if (!elements.isEmpty()) {
+        var arguments = List.copyOf(elements.subList(1, elements.size()));
+        var command = new Command(elements.get(0), arguments);
+        elements.clear();
+        return command;
+      }
+      if (end == EOF) return null;
+    }
+  }
+
+  // reads elements of the current command and returns the character that terminated it
+  private int readElements() {
+    while (true) {
+      var c = read();
+      switch (c) {
+        case EOF:
+          return EOF;
+        case ' ', '\t', '\r', '\f':
+          continue;
+        case '\n':
+          if (lineMode) return c;
+          continue;
+        case '\\':
+          var escaped = read();
+          if (escaped == '\n') continue; // line continuation between arguments
+          unread(escaped);
+          break;
+        case '#':
+          if (lineMode) {
+            skipComment();
+            return '\n';
+          }
+          break;
+        default:
+          break;
+      }
+      var quoted = readToken(c);
+      var element = token.toString();
+      token.setLength(0);
+      if (!quoted && element.equals(delimiter)) return c;
+      elements.add(element);
+    }
+  }
+
+  // reads a token starting with the given character and returns true if any part was quoted
+  private boolean readToken(int first) {
+    var quoted = false;
+    var c = first;
+    while (true) {
+      switch (c) {
+        case EOF, ' ', '\t', '\r', '\f', '\n' -> {
+          unread(c);
+          return quoted;
+        }
+        case '\'' -> {
+          quoted = true;
+          readSingleQuoted();
+        }
+        case '"' -> {
+          quoted = true;
+          readDoubleQuoted();
+        }
+        case '\\' -> {
+          var escaped = read();
+          if (escaped == EOF) token.append('\\');
+          else if (escaped != '\n') token.append((char) escaped);
+          // an escaped character is literal, like "\+" for the delimiter
+          if (escaped != EOF && escaped != '\n') quoted = true;
+        }
+        default -> token.append((char) c);
+      }
+      c = read();
+    }
+  }
+
+  private void readSingleQuoted() {
+    var start = line;
+    while (true) {
+      var c = read();
+      if (c == EOF) throw unterminated('\'', start);
+      if (c == '\'') return;
+      token.append((char) c);
+    }
+  }
+
+  private void readDoubleQuoted() {
+    var start = line;
+    while (true) {
+      var c = read();
+      if (c == EOF) throw unterminated('"', start);
+      if (c == '"') return;
+      if (c == '\\') {
+        var escaped = read();
+        if (escaped == EOF) throw unterminated('"', start);
+        if (escaped == '\n') continue;
+        if (escaped != '"' && escaped != '\\') token.append('\\');
+        token.append((char) escaped);
+        continue;
+      }
+      token.append((char) c);
+    }
+  }
+
+  private void skipComment() {
+    while (true) {
+      var c = read();
+      if (c == EOF || c == '\n') return;
+    }
+  }
+
+  private IllegalArgumentException unterminated(char quote, int start) {
+    var message = "Unterminated %c quote starting at line %d".formatted(quote, start);
+    return new IllegalArgumentException(message);
+  }
+
+  private int read() {
+    if (position == limit) {
+      try {
+        limit = reader.read(buffer, 0, buffer.length);
+      } catch (IOException exception) {
+        throw new UncheckedIOException(exception);
+      }
+      position = 0;
+      if (limit <= 0) {
+        limit = 0;
+        return EOF;
+      }
+    }
+    var c = buffer[position++];
+    if (c == '\n') line++;
+    return c;
+  }
+
+  private void unread(int c) {
+    if (c == EOF) return;
+    position--;
+    if (c == '\n') line--;
+  }
+}
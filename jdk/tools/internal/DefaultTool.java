@@ -28,4 +28,5 @@ package jdk.tools.internal;
 import java.util.spi.ToolProvider;
 import jdk.tools.Tool;
 
-public record DefaultTool(String namespace, String name, ToolProvider provider) implements Tool {}
+public record DefaultTool(String namespace, String name, ToolProvider provider, Weight weight)
+    implements Tool {}
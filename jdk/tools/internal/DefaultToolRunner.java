@@ -1,14 +1,23 @@
 package jdk.tools.internal;
 
+import java.time.Duration;
+import java.util.Optional;
 import jdk.tools.ToolFinder;
 import jdk.tools.ToolPrinter;
 import jdk.tools.ToolRunner;
 import jdk.tools.ToolRunner.Context;
+import jdk.tools.WorkerPool;
 
-public record DefaultToolRunner(ToolFinder finder, ToolPrinter printer)
+public record DefaultToolRunner(
+    ToolFinder finder, ToolPrinter printer, Duration timeout, WorkerPool pool)
     implements ToolRunner, Context {
   @Override
   public Context context() {
     return this;
   }
+
+  @Override
+  public Optional<WorkerPool> workers() {
+    return Optional.ofNullable(pool);
+  }
 }
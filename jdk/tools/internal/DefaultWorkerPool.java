@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import jdk.tools.Program;
+import jdk.tools.Tool;
+import jdk.tools.ToolOperator;
+import jdk.tools.WorkerPool;
+
+/**
+ * A worker pool launching up to a fixed number of worker virtual machines on demand.
+ *
+ * @see Worker
+ */
+public final class DefaultWorkerPool implements WorkerPool {
+  private final int maxRuns;
+  private final long maxHeap;
+  private final List<String> options;
+  private final Semaphore permits;
+  private final BlockingQueue<Connection> idle = new LinkedBlockingQueue<>();
+  private final Set<String> unavailable = ConcurrentHashMap.newKeySet();
+  private volatile boolean closed;
+
+  public DefaultWorkerPool(int size, int maxRuns, long maxHeap, List<String> options) {
+    if (size < 1) throw new IllegalArgumentException("size must be positive");
+    if (maxRuns < 1) throw new IllegalArgumentException("maxRuns must be positive");
+    this.maxRuns = maxRuns;
+    this.maxHeap = maxHeap;
+    this.options = List.copyOf(options);
+    this.permits = new Semaphore(size);
+  }
+
+  @Override
+  public boolean supports(Tool tool) {
+    var provider = tool.provider();
+    if (provider instanceof ToolOperator) return false;
+    if (provider instanceof Program || provider instanceof Program.Pipeline) return false;
+    if (provider instanceof Program.PersistentWorkers) return false;
+    return !closed && !unavailable.contains(key(tool));
+  }
+
+  private static String key(Tool tool) {
+    return tool.provider().getClass().getName() + '/' + tool.provider().name();
+  }
+
+  @Override
+  public int run(Tool tool, PrintWriter out, PrintWriter err, String... args) {
+    try {
+      permits.acquire();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      return -1;
+    }
+    try {
+      var connection = idle.poll();
+      if (connection == null) connection = new Connection(launch());
+      int code;
+      try {
+        code = connection.run(tool, out, err, args);
+      } catch (RuntimeException | Error exception) {
+        connection.destroy(); // don't leak a worker in an unknown state
+        throw exception;
+      }
+      if (closed || connection.retired()) connection.close();
+      else idle.add(connection);
+      if (code != Connection.UNAVAILABLE) return code;
+      unavailable.add(key(tool));
+      return tool.provider().run(out, err, args);
+    } finally {
+      permits.release();
+    }
+  }
+
+  private Process launch() {
+    var java = ProcessHandle.current().info().command();
+    var command = new ArrayList<String>();
+    command.add(java.orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+    command.addAll(options);
+    var classPath = System.getProperty("java.class.path", "");
+    if (!classPath.isEmpty()) command.addAll(List.of("--class-path", classPath));
+    var module = Worker.class.getModule();
+    if (module.isNamed()) {
+      var modulePath = System.getProperty("jdk.module.path", "");
+      if (!modulePath.isEmpty()) {
+        command.addAll(List.of("--module-path", modulePath));
+        command.addAll(List.of("--add-modules", "ALL-MODULE-PATH"));
+      }
+      command.addAll(List.of("--module", module.getName() + '/' + Worker.class.getName()));
+    } else {
+      command.add(Worker.class.getName());
+    }
+    try {
+      return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    } catch (IOException exception) {
+      throw new UncheckedIOException("Launching worker failed: " + command, exception);
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    for (var connection = idle.poll(); connection != null; connection = idle.poll()) {
+      connection.close();
+    }
+  }
+
+  private record Frame(byte type, String text, int code, long heap) {
+    static final byte CLOSED = -1;
+  }
+
+  private final class Connection {
+    static final int UNAVAILABLE = Integer.MIN_VALUE;
+
+    private final Process process;
+    private final DataOutputStream requests;
+    private final BlockingQueue<Frame> frames = new LinkedBlockingQueue<>();
+    private int runs;
+    private long heap;
+    private boolean broken;
+
+    Connection(Process process) {
+      this.process = process;
+      this.requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+      var receiver = new Thread(this::receive, "jdk.tools-worker-" + process.pid());
+      receiver.setDaemon(true);
+      receiver.start();
+    }
+
+    // runs in a dedicated thread as reading from a process is not interruptible
+    private void receive() {
+      try (var stream = new DataInputStream(new BufferedInputStream(process.getInputStream()))) {
+        while (true) {
+          var type = stream.readByte();
+          var frame =
+              switch (type) {
+                case Worker.OUT, Worker.ERR, Worker.UNAVAILABLE -> {
+                  yield new Frame(type, Worker.readString(stream), 0, 0);
+                }
+                case Worker.EXIT -> new Frame(type, null, stream.readInt(), stream.readLong());
+                default -> throw new IOException("Unexpected frame type: " + type);
+              };
+          frames.add(frame);
+        }
+      } catch (IOException exception) {
+        frames.add(new Frame(Frame.CLOSED, String.valueOf(exception), 0, 0));
+      }
+    }
+
+    boolean retired() {
+      return broken || runs >= maxRuns || heap >= maxHeap;
+    }
+
+    int run(Tool tool, PrintWriter out, PrintWriter err, String... args) {
+      runs++;
+      try {
+        Worker.writeString(requests, tool.provider().getClass().getName());
+        Worker.writeString(requests, tool.provider().name());
+        requests.writeInt(args.length);
+        for (var arg : args) Worker.writeString(requests, arg);
+        requests.flush();
+        while (true) {
+          var frame = frames.take();
+          switch (frame.type()) {
+            case Worker.OUT -> out.print(frame.text());
+            case Worker.ERR -> err.print(frame.text());
+            case Worker.EXIT -> {
+              heap = frame.heap();
+              out.flush();
+              err.flush();
+              return frame.code();
+            }
+            case Worker.UNAVAILABLE -> {
+              return UNAVAILABLE;
+            }
+            default -> throw new IOException("Worker closed: " + frame.text());
+          }
+        }
+      } catch (IOException exception) {
+        broken = true;
+        var message = "Worker %d failed running %s".formatted(process.pid(), key(tool));
+        throw new UncheckedIOException(message, exception);
+      } catch (InterruptedException exception) {
+        // the worker can't be reused as the interrupted tool run may still be ongoing
+        destroy();
+        Thread.currentThread().interrupt();
+        return -1;
+      }
+    }
+
+    void close() {
+      try {
+        requests.close(); // worker exits on end of input
+      } catch (IOException exception) {
+        destroy();
+      }
+    }
+
+    void destroy() {
+      broken = true;
+      try {
+        requests.close();
+      } catch (IOException exception) {
+        // ignore, the process is destroyed anyway
+      }
+      process.descendants().forEach(ProcessHandle::destroyForcibly);
+      process.destroyForcibly();
+    }
+  }
+}
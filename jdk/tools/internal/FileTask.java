@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import jdk.tools.Command;
+import jdk.tools.Task;
+
+/**
+ * Represents an ordered collection of command instances read from a file.
+ *
+ * <p>Commands are separated by line breaks or by the {@link Task#ARGUMENT_DELIMITER} argument and
+ * are parsed lazily while the task is being run.
+ *
+ * @param namespace the namespace of this task
+ * @param name the name of this task
+ * @param file the path to the file containing the commands
+ */
+public record FileTask(String namespace, String name, Path file) implements Task {
+  public FileTask {
+    if (namespace == null) throw new IllegalArgumentException("namespace must not be null");
+    if (name.isBlank()) throw new IllegalArgumentException("name must not be blank");
+    if (file == null) throw new IllegalArgumentException("file must not be null");
+  }
+
+  @Override
+  public List<Command> commands() {
+    try (var commands = stream()) {
+      return commands.toList();
+    }
+  }
+
+  @Override
+  public Stream<Command> stream() {
+    return CommandReader.lines(file, Task.ARGUMENT_DELIMITER);
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import jdk.tools.Command;
+import jdk.tools.Task;
+import jdk.tools.Tool;
+import jdk.tools.ToolMenu;
+import jdk.tools.ToolNotFoundException;
+import jdk.tools.ToolRunner;
+import jdk.tools.internal.GraphScheduler.Node;
+
+/**
+ * A task expanding nested task references into one global graph of commands before running it.
+ *
+ * <p>A command refers to a nested task if its tool, found by the finder of the runner, is a task,
+ * or if it is a tool menu whose item selected by the first argument refers to a nested task. Each
+ * command of a sequential task depends on all commands of its predecessor, commands of a parallel
+ * task don't depend on each other. Identical commands of the same tool are run only once, taking
+ * all dependencies of their occurrences, unless one occurrence already precedes the other in a
+ * sequential task: a command repeated in sequence is run again. Cyclic task references and
+ * conflicting orders of de-duplicated commands are rejected before any command is run.
+ *
+ * <p>The graph is run by the {@link GraphScheduler}: a command is started as soon as all commands
+ * it depends on completed, regardless of the task it originates from. The first failing command
+ * cancels all running and pending commands.
+ *
+ * @param task the root task to expand
+ */
+public record FlatTask(Task task) implements Task {
+  @Override
+  public String namespace() {
+    return task.namespace();
+  }
+
+  @Override
+  public String name() {
+    return task.name();
+  }
+
+  @Override
+  public List<Command> commands() {
+    return task.commands();
+  }
+
+  @Override
+  public boolean parallel() {
+    return task.parallel();
+  }
+
+  @Override
+  public int run(ToolRunner runner, PrintWriter out, PrintWriter err, String... args) {
+    var graph = new Graph(runner);
+    graph.expand(task);
+    graph.checkAcyclic();
+    graph.run(toNamespaceAndName());
+    return 0;
+  }
+
+  /** A part of the graph, entered via its first nodes and completed by its last nodes. */
+  record Fragment(List<Node> first, List<Node> last) {
+    static final Fragment EMPTY = new Fragment(List.of(), List.of());
+  }
+
+  static final class Graph {
+    private final ToolRunner runner;
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<Command, Node> unique = new HashMap<>();
+    private final List<String> stack = new ArrayList<>();
+    // nodes of all occurrences expanded so far, in order
+    private final List<Node> visited = new ArrayList<>();
+    // nodes preceding the position being expanded in enclosing sequential tasks
+    private final Set<Node> preceding = new HashSet<>();
+
+    Graph(ToolRunner runner) {
+      this.runner = runner;
+    }
+
+    Fragment expand(Task task) {
+      var name = task.toNamespaceAndName();
+      if (stack.contains(name)) {
+        var cycle = new ArrayList<>(stack.subList(stack.indexOf(name), stack.size()));
+        cycle.add(name);
+        var message = "Cyclic task references: " + String.join(" -> ", cycle);
+        throw new IllegalArgumentException(message);
+      }
+      stack.add(name);
+      List<Command> commands;
+      try (var stream = task.stream()) {
+        commands = stream.toList();
+      }
+      var fragments = new ArrayList<Fragment>();
+      var added = new ArrayList<Node>();
+      for (var command : commands) {
+        var from = visited.size();
+        var fragment = expand(find(command.tool()), command);
+        if (!fragment.first().isEmpty()) fragments.add(fragment);
+        if (task.parallel()) continue;
+        for (var node : visited.subList(from, visited.size())) {
+          if (preceding.add(node)) added.add(node);
+        }
+      }
+      preceding.removeAll(added);
+      stack.remove(stack.size() - 1);
+      if (fragments.isEmpty()) return Fragment.EMPTY;
+      if (task.parallel()) {
+        var first = new ArrayList<Node>();
+        var last = new ArrayList<Node>();
+        for (var fragment : fragments) {
+          first.addAll(fragment.first());
+          last.addAll(fragment.last());
+        }
+        return new Fragment(first, last);
+      }
+      for (int i = 1; i < fragments.size(); i++) connect(fragments.get(i - 1), fragments.get(i));
+      return new Fragment(fragments.get(0).first(), fragments.get(fragments.size() - 1).last());
+    }
+
+    private Fragment expand(Tool tool, Command command) {
+      if (tool.provider() instanceof Task nested) return expand(nested);
+      var arguments = command.arguments();
+      if (tool instanceof ToolMenu menu && !arguments.isEmpty()) {
+        var item = menu.items().find(arguments.get(0));
+        if (item.isPresent()) {
+          var rest = arguments.subList(1, arguments.size());
+          var name = item.get().name();
+          var call =
+              new Command(name, rest, command.timeout(), command.weight(), command.partition());
+          return expand(item.get(), call);
+        }
+      }
+      var key = new Command(tool.toNamespaceAndName(), arguments).withTimeout(command.timeout());
+      key = key.withWeight(command.weight()).withPartition(command.partition());
+      var node = unique.get(key);
+      if (node == null || preceding.contains(node)) {
+        node = add(newNode(tool, command));
+        unique.putIfAbsent(key, node);
+      }
+      visited.add(node);
+      return new Fragment(List.of(node), List.of(node));
+    }
+
+    private Node newNode(Tool tool, Command command) {
+      var printer = runner.context().printer();
+      return new Node(() -> runner.run(printer, tool, command), List.of(command));
+    }
+
+    private Node add(Node node) {
+      nodes.add(node);
+      return node;
+    }
+
+    // let all first nodes of the next fragment depend on all last nodes of the previous fragment
+    private void connect(Fragment previous, Fragment next) {
+      var last = previous.last();
+      var first = next.first();
+      if (last.size() > 1 && first.size() > 1) {
+        var barrier = add(new Node(null, List.of()));
+        last.forEach(node -> node.precede(barrier));
+        first.forEach(barrier::precede);
+        return;
+      }
+      for (var node : last) first.forEach(node::precede);
+    }
+
+    private Tool find(String name) {
+      var found = runner.context().finder().find(name);
+      if (found.isEmpty()) throw new ToolNotFoundException(name);
+      return found.get();
+    }
+
+    void checkAcyclic() {
+      var remaining = new HashMap<Node, Integer>();
+      var ready = new ArrayList<Node>();
+      for (var node : nodes) {
+        remaining.put(node, node.dependencies);
+        if (node.dependencies == 0) ready.add(node);
+      }
+      var visited = 0;
+      while (!ready.isEmpty()) {
+        var node = ready.remove(ready.size() - 1);
+        visited++;
+        for (var successor : node.successors) {
+          if (remaining.merge(successor, -1, Integer::sum) == 0) ready.add(successor);
+        }
+      }
+      if (visited == nodes.size()) return;
+      var conflicting =
+          nodes.stream()
+              .filter(node -> node.action != null && remaining.get(node) > 0)
+              .map(node -> node.commands.get(0).toCommandLine())
+              .toList();
+      throw new IllegalArgumentException("Conflicting orders of commands: " + conflicting);
+    }
+
+    void run(String name) {
+      GraphScheduler.run(name, nodes, GraphScheduler.defaultParallelism());
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import jdk.tools.Command;
+
+/**
+ * Runs a directed acyclic graph of actions concurrently in a single task scope.
+ *
+ * <p>An action is started as soon as all actions it depends on completed. Among the actions ready
+ * to run, those with the longest expected duration recorded by the system {@link RunHistory} are
+ * started first. Nodes without an action are barriers completing as soon as their dependencies did. The first
+ * failing action cancels all running and pending actions.
+ */
+public final class GraphScheduler {
+  /**
+   * The number of threads per available processor used for running tools by default.
+   *
+   * <p>Threads are oversubscribed as most of them block on processes, I/O, or the {@link
+   * ResourceBudget}, which admits the actual tool runs.
+   */
+  public static final int THREADS_PER_PROCESSOR = 4;
+
+  /** {@return the default degree of parallelism, threads per processor times processors} */
+  public static int defaultParallelism() {
+    return Runtime.getRuntime().availableProcessors() * THREADS_PER_PROCESSOR;
+  }
+
+  /** A node of the graph, a barrier if it has no action. */
+  public static final class Node {
+    final Runnable action;
+    final List<Command> commands;
+    final List<Node> successors = new ArrayList<>();
+    int dependencies;
+
+    /**
+     * Creates a node.
+     *
+     * @param action the action to run, or {@code null} for a barrier
+     * @param commands the commands run by the action, used to look up expected durations
+     */
+    public Node(Runnable action, List<Command> commands) {
+      this.action = action;
+      this.commands = List.copyOf(commands);
+    }
+
+    /** Lets the given node depend on this node. */
+    public void precede(Node successor) {
+      if (successor == this || successors.contains(successor)) return;
+      successors.add(successor);
+      successor.dependencies++;
+    }
+  }
+
+  /**
+   * Runs all given nodes.
+   *
+   * @param name the name of the scope, used in thread names and failure messages
+   * @param nodes all nodes of the graph
+   * @param parallelism the maximum number of concurrently running actions
+   * @throws RuntimeException carrying all failures of actions as suppressed exceptions
+   */
+  public static void run(String name, List<Node> nodes, int parallelism) {
+    var history = RunHistory.ofSystem();
+    var expected = expected(history, nodes);
+    var actions = (int) nodes.stream().filter(node -> node.action != null).count();
+    parallelism = Math.max(1, Math.min(parallelism, actions));
+    var longestFirst = Comparator.comparingLong((Node node) -> expected.get(node)).reversed();
+    var completions = new LinkedBlockingQueue<Node>();
+    var failed = new Node(null, List.of());
+    var pending = nodes.size();
+    try (var scope = new TaskScope(name, parallelism)) {
+      var ready = new ArrayList<Node>();
+      for (var node : nodes) if (node.dependencies == 0) ready.add(node);
+      while (pending > 0) {
+        ready.sort(longestFirst);
+        for (var node : ready) {
+          if (node.action == null) completions.add(node);
+          else if (!scope.fork(() -> run(scope, node, completions, failed))) break;
+        }
+        ready.clear();
+        var completed = completions.take();
+        if (completed == failed) break;
+        pending--;
+        for (var successor : completed.successors) {
+          if (--successor.dependencies == 0) ready.add(successor);
+        }
+      }
+      if (pending > 0) scope.shutdown();
+      scope.join();
+      scope.throwIfFailed();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while running " + name, exception);
+    }
+  }
+
+  // records a failure in the scope before signalling it, shutting the scope down on the
+  // signal would otherwise interrupt this thread first and let the failure pass as cancelled
+  private static void run(
+      TaskScope scope, Node node, BlockingQueue<Node> completions, Node failed) {
+    try {
+      node.action.run();
+      completions.add(node);
+    } catch (Throwable throwable) {
+      scope.fail(throwable);
+      completions.add(failed);
+    }
+  }
+
+  // sum of expected durations of the commands of each node, the average one if none is known
+  private static Map<Node, Long> expected(RunHistory history, List<Node> nodes) {
+    var expected = new HashMap<Node, Long>();
+    var known = 0;
+    var sum = 0L;
+    for (var node : nodes) {
+      var nanos = -1L;
+      for (var command : node.commands) {
+        var duration = history.expected(command);
+        if (duration >= 0) nanos = Math.max(0, nanos) + duration;
+      }
+      expected.put(node, nanos);
+      if (nanos < 0) continue;
+      known++;
+      sum += nanos;
+    }
+    var average = known == 0 ? 0 : sum / known;
+    expected.replaceAll((node, nanos) -> nanos < 0 ? average : nanos);
+    return expected;
+  }
+
+  private GraphScheduler() {}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import jdk.tools.Program;
+import jdk.tools.Tool;
+import jdk.tools.ToolFinder;
+
+/**
+ * A tool finder preferring in-process tool providers over operating system programs.
+ *
+ * <p>A tool is searched for in the following order: tool providers found by the service loader,
+ * programs in the {@code bin} folder of the current JDK, and programs in the folders listed by the
+ * {@code PATH} environment variable. Each resolution is recorded as a {@link ToolResolutionEvent},
+ * including failed ones. Successful resolutions are cached and listed by the {@link #toString()}
+ * method of this finder. A cached program is resolved again if its executable file was removed or
+ * modified since, and a tool not found is searched for again on the next request.
+ */
+public final class HybridToolFinder implements ToolFinder {
+  private final ToolFinder providers;
+  private final ToolFinder programs;
+  private final ToolFinder path;
+  private final Map<String, Resolution> resolved = new ConcurrentHashMap<>();
+  private final Map<String, String> decisions = new ConcurrentHashMap<>();
+
+  public HybridToolFinder(ToolFinder providers, Path folder, ToolFinder path) {
+    this.providers = providers;
+    this.programs = ToolFinder.ofPrograms(List.of(folder));
+    this.path = path;
+  }
+
+  @Override
+  public List<Tool> tools() {
+    return Stream.of(providers, programs, path).flatMap(finder -> finder.tools().stream()).toList();
+  }
+
+  @Override
+  public Optional<Tool> find(String string) {
+    var cached = resolved.get(string);
+    if (cached != null && cached.isValid()) return Optional.of(cached.tool());
+    var found = resolve(string);
+    if (found.isEmpty()) resolved.remove(string);
+    else resolved.put(string, Resolution.of(found.get()));
+    return found;
+  }
+
+  /** A resolved tool and, for programs, the last-modified time of their executable file. */
+  private record Resolution(Tool tool, Path executable, FileTime modified) {
+    static Resolution of(Tool tool) {
+      if (!(tool.provider() instanceof Program program)) return new Resolution(tool, null, null);
+      var executable = Path.of(program.command().get(0));
+      return new Resolution(tool, executable, lastModifiedTime(executable));
+    }
+
+    static FileTime lastModifiedTime(Path executable) {
+      try {
+        return Files.getLastModifiedTime(executable);
+      } catch (IOException exception) {
+        return null; // not a path, like "java" looked up by the operating system
+      }
+    }
+
+    boolean isValid() {
+      return modified == null || modified.equals(lastModifiedTime(executable));
+    }
+  }
+
+  private Optional<Tool> resolve(String string) {
+    var provider = providers.find(string);
+    if (provider.isPresent()) return record(string, "in-process", provider.get());
+    var program = programs.find(string);
+    if (program.isPresent()) {
+      // prefer the JDK tool factory as it applies class data sharing when configured
+      var tool = program.get();
+      var jdk = Program.findJavaDevelopmentKitTool(tool.name());
+      return record(string, "jdk-program", jdk.isEmpty() ? tool : Tool.of("jdk", jdk.get()));
+    }
+    var external = path.find(string);
+    if (external.isPresent()) return record(string, "path-program", external.get());
+    return record(string, "not-found", null);
+  }
+
+  private Optional<Tool> record(String query, String kind, Tool tool) {
+    var event = new ToolResolutionEvent();
+    if (event.shouldCommit()) {
+      event.query = query;
+      event.kind = kind;
+      event.namespace = tool == null ? null : tool.namespace();
+      event.name = tool == null ? null : tool.name();
+      event.commit();
+    }
+    if (tool == null) return Optional.empty();
+    decisions.put(query, kind + ' ' + tool.toNamespaceAndName());
+    return Optional.of(tool);
+  }
+
+  @Override
+  public String toString() {
+    return "HybridToolFinder" + new TreeMap<>(decisions);
+  }
+}
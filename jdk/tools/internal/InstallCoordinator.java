@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import jdk.tools.ToolFinder;
+import jdk.tools.ToolInstaller;
+
+/**
+ * Runs each installation of a tool version into a folder at most once at a time.
+ *
+ * <p>Within this virtual machine, concurrent requests to install the same namespace, name, and
+ * version into the same folder share a single installation: the first caller installs, all other
+ * callers wait for and receive its resulting tool finder or exception. Successful installations
+ * are remembered, failed ones may be retried. Requests for other installations never wait on each
+ * other, unless they target the same folder.
+ *
+ * <p>Across processes, installations into the same folder are serialized by a file lock on a
+ * {@code <folder>.lock} file next to the folder. A {@code <folder>.installing} marker file exists
+ * while an installation is running; if it is found when the lock is acquired, a previous
+ * installation was interrupted and the folder is deleted before installing again. Installers are
+ * expected to reuse a complete installation found in the folder.
+ */
+public final class InstallCoordinator {
+  private static final InstallCoordinator SYSTEM = new InstallCoordinator();
+
+  private static final long MIN_BACKOFF_MILLIS = 10;
+
+  private static final long MAX_BACKOFF_MILLIS = 500;
+
+  /** {@return the install coordinator shared by all callers of this virtual machine} */
+  public static InstallCoordinator ofSystem() {
+    return SYSTEM;
+  }
+
+  record Key(String namespace, String name, String version, Path folder) {}
+
+  private final Map<Key, CompletableFuture<ToolFinder>> installations = new ConcurrentHashMap<>();
+  private final Map<Path, Object> monitors = new ConcurrentHashMap<>();
+
+  /** {@return the tool finder created by the given installer, installing it at most once} */
+  public ToolFinder install(ToolInstaller installer, Path folder, String version)
+      throws Exception {
+    var directory = folder.toAbsolutePath().normalize();
+    if (directory.getParent() == null) throw new IllegalArgumentException("Root folder: " + folder);
+    var key = new Key(installer.namespace(), installer.name(), version, directory);
+    var installation = new CompletableFuture<ToolFinder>();
+    var running = installations.putIfAbsent(key, installation);
+    if (running != null) return await(running);
+    try {
+      installation.complete(installLocked(installer, directory, version));
+    } catch (Exception | Error throwable) {
+      installations.remove(key, installation);
+      installation.completeExceptionally(throwable);
+      throw throwable;
+    }
+    return installation.join();
+  }
+
+  private static ToolFinder await(CompletableFuture<ToolFinder> installation) throws Exception {
+    try {
+      return installation.get();
+    } catch (ExecutionException exception) {
+      var cause = exception.getCause();
+      if (cause instanceof Exception checked) throw checked;
+      if (cause instanceof Error error) throw error;
+      throw exception;
+    }
+  }
+
+  private ToolFinder installLocked(ToolInstaller installer, Path folder, String version)
+      throws Exception {
+    var parent = Files.createDirectories(folder.getParent());
+    var name = folder.getFileName().toString();
+    var file = parent.resolve(name + ".lock");
+    var marker = parent.resolve(name + ".installing");
+    // file locks are held per virtual machine: serialize threads installing into the same folder
+    synchronized (monitors.computeIfAbsent(file, __ -> new Object())) {
+      var options = new StandardOpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.WRITE};
+      try (var channel = FileChannel.open(file, options)) {
+        var lock = lock(channel);
+        try {
+          if (Files.exists(marker)) FileTrees.delete(folder);
+          Files.writeString(marker, Long.toString(ProcessHandle.current().pid()));
+          var finder = installer.install(folder, version);
+          Files.delete(marker);
+          return finder;
+        } finally {
+          lock.release();
+        }
+      }
+    }
+  }
+
+  // poll instead of blocking: the operating system detects deadlocks per process, not per thread,
+  // and would fail a blocking lock of two processes installing two folders in opposite order
+  private static FileLock lock(FileChannel channel) throws IOException, InterruptedException {
+    var backoff = MIN_BACKOFF_MILLIS;
+    while (true) {
+      var lock = channel.tryLock();
+      if (lock != null) return lock;
+      Thread.sleep(backoff);
+      backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+    }
+  }
+}
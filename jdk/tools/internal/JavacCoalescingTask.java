@@ -0,0 +1,457 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.System.Logger.Level;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import jdk.tools.Command;
+import jdk.tools.Task;
+import jdk.tools.ToolNotFoundException;
+import jdk.tools.ToolPrinter;
+import jdk.tools.ToolResult;
+import jdk.tools.ToolRunner;
+
+/**
+ * A task running compatible {@code javac} commands of another task as a single compilation.
+ *
+ * <p>Two {@code javac} commands are compatible if they differ only in their source files and in
+ * the value of their {@code -d} option, and if no two of their source files share the same package
+ * and file name. Commands using argument files or compiling a {@code module-info.java} file are
+ * never coalesced. In a sequential task only consecutive commands are coalesced, a parallel task
+ * coalesces compatible commands regardless of their position.
+ *
+ * <p>A coalesced compilation writes its class files into a temporary directory from which each
+ * class file is copied to the output directory of the command owning its source file. Diagnostics
+ * are buffered and printed once the coalesced compilation succeeded, preceded by the command line
+ * of the command owning the reported source file. If a coalesced compilation fails, if its class
+ * files can't be attributed, if it writes files other than class files, like resources created by
+ * annotation processors, or if a class of one command refers to a class compiled from the sources
+ * of another command, its diagnostics are discarded and all of its commands are run one by one to
+ * report the diagnostics and exit codes they have on their own.
+ *
+ * @param task the task to optimize
+ */
+public record JavacCoalescingTask(Task task) implements Task {
+  private static final Pattern COMMENTS = Pattern.compile("(?s)/\\*.*?\\*/|//[^\\n]*");
+
+  private static final Pattern PACKAGE =
+      Pattern.compile("(?s)^\\s*(?:@[\\w.]+(?:\\([^)]*\\))?\\s*)*package\\s+([\\w.\\s]+?)\\s*;");
+
+  @Override
+  public String namespace() {
+    return task.namespace();
+  }
+
+  @Override
+  public String name() {
+    return task.name();
+  }
+
+  @Override
+  public List<Command> commands() {
+    return task.commands();
+  }
+
+  @Override
+  public boolean parallel() {
+    return task.parallel();
+  }
+
+  @Override
+  public int run(ToolRunner runner, PrintWriter out, PrintWriter err, String... args) {
+    var units = parallel() ? coalesceAll(commands()) : coalesceConsecutive(commands());
+    if (!parallel()) {
+      for (var unit : units) unit.run(runner);
+      return 0;
+    }
+    var nodes = new ArrayList<GraphScheduler.Node>();
+    for (var unit : units) {
+      nodes.add(new GraphScheduler.Node(() -> unit.run(runner), unit.commands()));
+    }
+    GraphScheduler.run(toNamespaceAndName(), nodes, GraphScheduler.defaultParallelism());
+    return 0;
+  }
+
+  static List<Unit> coalesceConsecutive(List<Command> commands) {
+    var units = new ArrayList<Unit>();
+    var batch = new ArrayList<Invocation>();
+    for (var command : commands) {
+      var invocation = Invocation.parse(command);
+      if (invocation == null || !Invocation.compatible(batch, invocation)) {
+        if (!batch.isEmpty()) units.add(Unit.of(batch));
+        batch = new ArrayList<>();
+      }
+      if (invocation == null) units.add(new Single(command));
+      else batch.add(invocation);
+    }
+    if (!batch.isEmpty()) units.add(Unit.of(batch));
+    return List.copyOf(units);
+  }
+
+  static List<Unit> coalesceAll(List<Command> commands) {
+    var groups = new LinkedHashMap<Object, List<Invocation>>();
+    for (var command : commands) {
+      var invocation = Invocation.parse(command);
+      if (invocation == null) {
+        groups.put(new Object(), List.of(new Invocation(command, null, null, null, null)));
+        continue;
+      }
+      var group =
+          groups.values().stream()
+              .filter(batch -> batch.get(0).options() != null)
+              .filter(batch -> Invocation.compatible(batch, invocation))
+              .findFirst();
+      if (group.isPresent()) group.get().add(invocation);
+      else groups.put(invocation, new ArrayList<>(List.of(invocation)));
+    }
+    var units = new ArrayList<Unit>();
+    for (var group : groups.values()) {
+      if (group.get(0).options() == null) units.add(new Single(group.get(0).command()));
+      else units.add(Unit.of(group));
+    }
+    return List.copyOf(units);
+  }
+
+  /** A unit of work: a single command or a batch of coalesced commands. */
+  sealed interface Unit {
+    static Unit of(List<Invocation> invocations) {
+      if (invocations.size() == 1) return new Single(invocations.get(0).command());
+      return new Batch(List.copyOf(invocations));
+    }
+
+    /** {@return the commands run by this unit, used to look up their expected durations} */
+    List<Command> commands();
+
+    void run(ToolRunner runner);
+  }
+
+  record Single(Command command) implements Unit {
+    @Override
+    public List<Command> commands() {
+      return List.of(command);
+    }
+
+    @Override
+    public void run(ToolRunner runner) {
+      runner.run(command);
+    }
+  }
+
+  record Batch(List<Invocation> invocations) implements Unit {
+    @Override
+    public List<Command> commands() {
+      return invocations.stream().map(Invocation::command).toList();
+    }
+
+    @Override
+    public void run(ToolRunner runner) {
+      var printer = runner.context().printer();
+      Path target = null;
+      try {
+        target = Files.createTempDirectory("jdk.tools-javac-");
+        var merged =
+            Command.of("javac")
+                .with(invocations.get(0).options().stream())
+                .with("-d", target)
+                .with(invocations.stream().flatMap(it -> it.sources().stream()));
+        var javac = runner.context().finder().find("javac");
+        if (javac.isEmpty()) throw new ToolNotFoundException("javac");
+        var owners = new HashMap<String, Invocation>();
+        for (var invocation : invocations) {
+          invocation.sources().forEach(source -> owners.put(source, invocation));
+        }
+        var outBuffer = new StringWriter();
+        var errBuffer = new StringWriter();
+        ToolResult result;
+        try (var out = new PrintWriter(new AttributingWriter(outBuffer, owners));
+            var err = new PrintWriter(new AttributingWriter(errBuffer, owners))) {
+          result = runner.call(new ToolPrinter(out, err, printer.threshold()), javac.get(), merged);
+        }
+        if (result.isSuccessful() && distribute(target)) {
+          printer.out().print(outBuffer);
+          printer.out().flush();
+          printer.err().print(errBuffer);
+          printer.err().flush();
+          return;
+        }
+      } catch (IOException exception) {
+        // fall back to running the commands one by one
+      } finally {
+        if (target != null) FileTrees.deleteQuietly(target);
+      }
+      var message = "Running %d coalesced javac commands one by one";
+      printer.println(Level.INFO, message.formatted(invocations.size()));
+      for (var invocation : invocations) runner.run(invocation.command());
+    }
+
+    /**
+     * Copies each class file to the output directory of the command owning its source file.
+     *
+     * @return {@code false} if the output contains a file that can't be attributed, like a
+     *     resource or a class file without a source file of a command, or a class file refers to a
+     *     class compiled from a source file of another command, as that command may fail on its own
+     */
+    private boolean distribute(Path classes) throws IOException {
+      var owners = new HashMap<String, Invocation>();
+      for (var invocation : invocations) {
+        invocation.keys().forEach(key -> owners.put(key, invocation));
+      }
+      var files = new LinkedHashMap<Path, ClassFile>();
+      var classOwners = new HashMap<String, Invocation>();
+      try (var stream = Files.walk(classes)) {
+        for (var file : stream.filter(Files::isRegularFile).toList()) {
+          if (!file.toString().endsWith(".class")) return false;
+          var classFile = ClassFile.read(file);
+          var slash = classFile.name().lastIndexOf('/');
+          var folder = slash < 0 ? "" : classFile.name().substring(0, slash).replace('/', '.');
+          var owner = owners.get(folder + '/' + classFile.sourceFile());
+          if (owner == null) return false;
+          files.put(file, classFile);
+          classOwners.put(classFile.name(), owner);
+        }
+      }
+      for (var classFile : files.values()) {
+        var owner = classOwners.get(classFile.name());
+        for (var reference : classFile.references()) {
+          var other = classOwners.get(reference);
+          if (other != null && other != owner) return false;
+        }
+      }
+      for (var file : files.keySet()) {
+        var relative = classes.relativize(file);
+        var copy = classOwners.get(files.get(file).name()).directory().resolve(relative);
+        Files.createDirectories(copy.getParent());
+        Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * A writer forwarding complete lines to another writer, preceding diagnostics with the command
+   * line of the command owning the reported source file whenever the owner changes.
+   */
+  static final class AttributingWriter extends Writer {
+    private final PrintWriter other;
+    private final Map<String, Invocation> owners;
+    private final StringBuilder line = new StringBuilder();
+    private Invocation current;
+
+    AttributingWriter(Writer other, Map<String, Invocation> owners) {
+      this.other = new PrintWriter(other);
+      this.owners = owners;
+    }
+
+    @Override
+    public synchronized void write(char[] chars, int offset, int length) {
+      for (int i = offset; i < offset + length; i++) {
+        var c = chars[i];
+        if (c == '\n') writeLine();
+        else if (c != '\r') line.append(c);
+      }
+    }
+
+    private void writeLine() {
+      var text = line.toString();
+      line.setLength(0);
+      var end = text.indexOf(".java:");
+      var owner = end < 0 ? null : owners.get(text.substring(0, end + 5));
+      if (owner != null && owner != current) {
+        other.println("| " + owner.command().toCommandLine());
+        current = owner;
+      }
+      other.println(text);
+    }
+
+    @Override
+    public synchronized void flush() {
+      other.flush();
+    }
+
+    /** Writes a pending incomplete line, the other writer is not closed. */
+    @Override
+    public synchronized void close() {
+      if (!line.isEmpty()) writeLine();
+      other.flush();
+    }
+  }
+
+  /**
+   * A parsed {@code javac} command.
+   *
+   * @param command the original command
+   * @param options all arguments except the output directory and the source files
+   * @param directory the output directory
+   * @param sources the source files
+   * @param keys the package-qualified file names of all source files, like {@code "a.b/X.java"}
+   */
+  record Invocation(
+      Command command,
+      List<String> options,
+      Path directory,
+      List<String> sources,
+      Set<String> keys) {
+
+    static Invocation parse(Command command) {
+      if (!command.tool().equals("javac")) return null;
+      var options = new ArrayList<String>();
+      var sources = new ArrayList<String>();
+      Path directory = null;
+      var arguments = command.arguments();
+      for (int i = 0; i < arguments.size(); i++) {
+        var argument = arguments.get(i);
+        if (argument.startsWith("@")) return null;
+        if (argument.equals("-d")) {
+          if (++i == arguments.size()) return null;
+          directory = Path.of(arguments.get(i));
+        } else if (!argument.startsWith("-") && argument.endsWith(".java")) {
+          if (argument.endsWith("module-info.java")) return null;
+          sources.add(argument);
+        } else options.add(argument);
+      }
+      if (directory == null || sources.isEmpty()) return null;
+      var keys = new HashSet<String>();
+      for (var source : sources) {
+        var key = key(Path.of(source));
+        if (key == null || !keys.add(key)) return null;
+      }
+      return new Invocation(command, List.copyOf(options), directory, List.copyOf(sources), keys);
+    }
+
+    static boolean compatible(List<Invocation> batch, Invocation invocation) {
+      if (batch.isEmpty()) return true;
+      if (!batch.get(0).options().equals(invocation.options())) return false;
+      var keys = invocation.keys();
+      return batch.stream().noneMatch(it -> it.keys().stream().anyMatch(keys::contains));
+    }
+
+    // "package.name/File.java"
+    private static String key(Path source) {
+      try {
+        var text = COMMENTS.matcher(Files.readString(source)).replaceAll(" ");
+        var matcher = PACKAGE.matcher(text);
+        var name = matcher.find() ? matcher.group(1).replaceAll("\\s", "") : "";
+        return name + '/' + source.getFileName();
+      } catch (IOException | UncheckedIOException exception) {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * The name, source file, and referenced classes of a class file.
+   *
+   * <p>References are read from class constants and from type descriptors and signatures. Constant
+   * values inlined by the compiler leave no reference to the class declaring them.
+   *
+   * @param name the internal name of the class, like {@code "a/b/X"}
+   * @param sourceFile the value of the {@code SourceFile} attribute, or {@code null}
+   * @param references the internal names of all classes referenced by the class
+   */
+  record ClassFile(String name, String sourceFile, Set<String> references) {
+    private static final Pattern DESCRIPTOR = Pattern.compile("L([^;<>()\\[.]+)[;<.]");
+
+    static ClassFile read(Path file) throws IOException {
+      try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+        if (in.readInt() != 0xCAFEBABE) throw new IOException("Not a class file: " + file);
+        in.skipNBytes(4); // minor and major version
+        var count = in.readUnsignedShort();
+        var strings = new String[count];
+        var classes = new int[count];
+        for (int i = 1; i < count; i++) {
+          var tag = in.readUnsignedByte();
+          switch (tag) {
+            case 1 -> strings[i] = in.readUTF();
+            case 7 -> classes[i] = in.readUnsignedShort();
+            case 8, 16, 19, 20 -> in.skipNBytes(2);
+            case 15 -> in.skipNBytes(3);
+            case 3, 4, 9, 10, 11, 12, 17, 18 -> in.skipNBytes(4);
+            case 5, 6 -> {
+              in.skipNBytes(8);
+              i++; // long and double constants occupy two entries
+            }
+            default -> throw new IOException("Unknown constant pool tag " + tag + " in " + file);
+          }
+        }
+        in.skipNBytes(2); // access flags
+        var name = strings[classes[in.readUnsignedShort()]];
+        in.skipNBytes(2); // super class
+        in.skipNBytes(2L * in.readUnsignedShort()); // interfaces
+        for (int members = 0; members < 2; members++) { // fields and methods
+          var memberCount = in.readUnsignedShort();
+          for (int i = 0; i < memberCount; i++) {
+            in.skipNBytes(6); // access flags, name, descriptor
+            skipAttributes(in);
+          }
+        }
+        String sourceFile = null;
+        var attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount && sourceFile == null; i++) {
+          var attribute = strings[in.readUnsignedShort()];
+          var length = in.readInt();
+          if ("SourceFile".equals(attribute)) sourceFile = strings[in.readUnsignedShort()];
+          else in.skipNBytes(length);
+        }
+        var references = new HashSet<String>();
+        for (int i = 1; i < count; i++) {
+          if (classes[i] != 0 && !strings[classes[i]].startsWith("[")) {
+            references.add(strings[classes[i]]);
+          }
+          if (strings[i] == null) continue;
+          var matcher = DESCRIPTOR.matcher(strings[i]);
+          while (matcher.find()) references.add(matcher.group(1));
+        }
+        references.remove(name);
+        return new ClassFile(name, sourceFile, Set.copyOf(references));
+      }
+    }
+  }
+
+  private static void skipAttributes(DataInputStream in) throws IOException {
+    var count = in.readUnsignedShort();
+    for (int i = 0; i < count; i++) {
+      in.skipNBytes(2);
+      in.skipNBytes(Integer.toUnsignedLong(in.readInt()));
+    }
+  }
+}
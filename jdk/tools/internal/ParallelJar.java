@@ -0,0 +1,496 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import jdk.tools.ToolOperator;
+import jdk.tools.ToolRunner;
+
+/**
+ * A tool operator creating jar files with entries compressed in parallel.
+ *
+ * <p>Supported options are the ones of {@code jar --create}: {@code --file}, {@code --main-class},
+ * {@code --manifest}, {@code --no-manifest}, {@code --no-compress}, {@code --date}, {@code
+ * --release}, {@code --verbose}, and {@code -C}, including their short and clustered forms like
+ * {@code -cfe}. Option {@code --store-compressed} additionally stores files with extensions of
+ * already compressed formats, like {@code .jar} or {@code .png}, without compressing them again.
+ * Entries whose deflated data isn't smaller than their content are always stored.
+ *
+ * <p>Entries are written in a deterministic order: the manifest first, followed by the files in
+ * the order of the command line with directories expanded in lexicographic order. Timestamps are
+ * taken from the {@code --date} option, if present, or from the last-modified times of the files.
+ * Files are read and compressed concurrently while the jar file is written sequentially.
+ */
+public final class ParallelJar implements ToolOperator {
+  private static final Set<String> COMPRESSED_EXTENSIONS =
+      Set.of(
+          "7z", "br", "bz2", "ear", "gif", "gz", "jar", "jmod", "jpeg", "jpg", "mp3", "mp4", "png",
+          "tgz", "war", "webp", "woff", "woff2", "xz", "zip", "zst");
+
+  private static final LocalDateTime MIN_DATE = LocalDateTime.of(1980, 1, 1, 0, 0, 2);
+
+  private static final LocalDateTime MAX_DATE = LocalDateTime.of(2099, 12, 31, 23, 59, 59);
+
+  @Override
+  public String name() {
+    return "parallel-jar";
+  }
+
+  @Override
+  public int run(ToolRunner runner, PrintWriter out, PrintWriter err, String... args) {
+    try {
+      var options = Options.parse(args);
+      var entries = collect(options);
+      var file = Path.of(options.file);
+      var parent = file.toAbsolutePath().getParent();
+      Files.createDirectories(parent);
+      var temporary = Files.createTempFile(parent, file.getFileName() + "-", ".tmp");
+      try {
+        // recreate the reserved file, applying the default permissions instead of owner-only ones
+        Files.delete(temporary);
+        write(options, entries, temporary, out);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+      return 0;
+    } catch (IllegalArgumentException exception) {
+      err.println(exception.getMessage());
+      return 2;
+    } catch (IOException exception) {
+      err.println("Creating jar file failed: " + exception);
+      return 1;
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      return -1;
+    }
+  }
+
+  /** The options of a jar creation, files are grouped by base directory and release. */
+  static final class Options {
+    String file;
+    String mainClass;
+    String manifest;
+    boolean noManifest;
+    boolean noCompress;
+    boolean storeCompressed;
+    boolean verbose;
+    LocalDateTime date;
+    final List<Input> inputs = new ArrayList<>();
+    final Set<String> releases = new HashSet<>();
+
+    static Options parse(String... args) {
+      var options = new Options();
+      var create = false;
+      var directory = (String) null;
+      var prefix = "";
+      var arguments = new ArrayDeque<>(List.of(args));
+      while (!arguments.isEmpty()) {
+        var argument = arguments.removeFirst();
+        var value = (String) null;
+        var equals = argument.indexOf('=');
+        if (argument.startsWith("--") && equals > 0) {
+          value = argument.substring(equals + 1);
+          argument = argument.substring(0, equals);
+        }
+        if (argument.startsWith("-") && !argument.startsWith("--") && argument.length() > 2
+            && !argument.equals("-C")) {
+          // clustered short options like "-cfe" take their values in order, as in "jar"
+          var expanded = new ArrayList<String>();
+          for (var letter : argument.substring(1).toCharArray()) {
+            expanded.add("-" + letter);
+            if ("fem".indexOf(letter) >= 0) expanded.add(value("-" + letter, null, arguments));
+          }
+          for (int i = expanded.size() - 1; i >= 0; i--) arguments.addFirst(expanded.get(i));
+          continue;
+        }
+        switch (argument) {
+          case "-c", "--create" -> create = true;
+          case "-f", "--file" -> options.file = value(argument, value, arguments);
+          case "-e", "--main-class" -> options.mainClass = value(argument, value, arguments);
+          case "-m", "--manifest" -> options.manifest = value(argument, value, arguments);
+          case "-M", "--no-manifest" -> options.noManifest = true;
+          case "-0", "--no-compress" -> options.noCompress = true;
+          case "-v", "--verbose" -> options.verbose = true;
+          case "--store-compressed" -> options.storeCompressed = true;
+          case "--date" -> options.date = date(value(argument, value, arguments));
+          case "--release" -> {
+            var release = value(argument, value, arguments);
+            if (!release.matches("\\d+") || Integer.parseInt(release) < 9) {
+              throw new IllegalArgumentException("Invalid release: " + release);
+            }
+            options.releases.add(release);
+            prefix = "META-INF/versions/" + release + "/";
+          }
+          case "-C" -> {
+            directory = value(argument, value, arguments);
+            var path = arguments.pollFirst();
+            if (path == null) throw new IllegalArgumentException("Missing file after -C");
+            options.inputs.add(new Input(Path.of(directory), Path.of(path), prefix));
+          }
+          default -> {
+            if (argument.startsWith("-")) {
+              throw new IllegalArgumentException("Unsupported option: " + argument);
+            }
+            options.inputs.add(new Input(null, Path.of(argument), prefix));
+          }
+        }
+      }
+      if (!create) throw new IllegalArgumentException("Only --create is supported");
+      if (options.file == null) throw new IllegalArgumentException("Missing --file option");
+      if (options.noManifest && (options.manifest != null || options.mainClass != null)) {
+        throw new IllegalArgumentException("--no-manifest conflicts with manifest options");
+      }
+      return options;
+    }
+
+    private static String value(String option, String value, ArrayDeque<String> arguments) {
+      if (value != null) return value;
+      var next = arguments.pollFirst();
+      if (next == null) throw new IllegalArgumentException("Missing value for " + option);
+      return next;
+    }
+
+    private static LocalDateTime date(String value) {
+      try {
+        var instant = ZonedDateTime.parse(value, DateTimeFormatter.ISO_ZONED_DATE_TIME);
+        var date = instant.withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+        if (date.isBefore(MIN_DATE) || date.isAfter(MAX_DATE)) {
+          throw new IllegalArgumentException("Date out of range: " + value);
+        }
+        return date;
+      } catch (DateTimeParseException exception) {
+        throw new IllegalArgumentException("Invalid date: " + value);
+      }
+    }
+  }
+
+  /** A file or directory to add, resolved against an optional base directory. */
+  record Input(Path directory, Path path, String prefix) {}
+
+  /** An entry to write, a directory if {@code file} is {@code null}. */
+  record Entry(String name, Path file, byte[] content, LocalDateTime time) {}
+
+  /** The compressed or stored data of an entry. */
+  record Data(Entry entry, int method, byte[] bytes, long size, long crc) {}
+
+  private static Map<String, Entry> collect(Options options) throws IOException {
+    var entries = new LinkedHashMap<String, Entry>();
+    if (!options.noManifest) {
+      var manifest = new Manifest();
+      if (options.manifest != null) {
+        try (var stream = Files.newInputStream(Path.of(options.manifest))) {
+          manifest = new Manifest(stream);
+        }
+      }
+      var attributes = manifest.getMainAttributes();
+      attributes.putIfAbsent(Attributes.Name.MANIFEST_VERSION, "1.0");
+      var vendor = System.getProperty("java.vendor");
+      var createdBy = System.getProperty("java.version") + " (" + vendor + ")";
+      attributes.putIfAbsent(new Attributes.Name("Created-By"), createdBy);
+      if (options.mainClass != null) attributes.put(Attributes.Name.MAIN_CLASS, options.mainClass);
+      if (!options.releases.isEmpty()) attributes.put(Attributes.Name.MULTI_RELEASE, "true");
+      var bytes = new ByteArrayOutputStream();
+      manifest.write(bytes);
+      var time = options.date != null ? options.date : LocalDateTime.now();
+      entries.put("META-INF/", new Entry("META-INF/", null, null, time));
+      var manifestEntry = new Entry(JarFile.MANIFEST_NAME, null, bytes.toByteArray(), time);
+      entries.put(JarFile.MANIFEST_NAME, manifestEntry);
+    }
+    for (var input : options.inputs) {
+      var base = input.directory() == null ? Path.of("") : input.directory();
+      var start = base.resolve(input.path());
+      if (!Files.exists(start)) throw new IllegalArgumentException("File not found: " + start);
+      List<Path> paths;
+      try (var stream = Files.walk(start)) {
+        paths = stream.sorted().toList();
+      }
+      var root = base.toAbsolutePath().normalize();
+      for (var path : paths) {
+        var relative = root.relativize(path.toAbsolutePath().normalize());
+        var separator = path.getFileSystem().getSeparator();
+        var name = input.prefix() + relative.toString().replace(separator, "/");
+        var directory = Files.isDirectory(path);
+        if (name.isEmpty() || name.equals(input.prefix())) {
+          if (directory) continue; // "-C dir ." adds the contents of dir, not dir itself
+        }
+        if (name.startsWith("../") || name.startsWith("/")) {
+          throw new IllegalArgumentException("File outside of base directory: " + path);
+        }
+        if (directory) name += "/";
+        if (!options.noManifest && name.equalsIgnoreCase(JarFile.MANIFEST_NAME)) continue;
+        var time =
+            options.date != null
+                ? options.date
+                : LocalDateTime.ofInstant(
+                    Files.getLastModifiedTime(path).toInstant(), ZoneId.systemDefault());
+        var entry = new Entry(name, directory ? null : path, null, time);
+        var existing = entries.putIfAbsent(name, entry);
+        if (existing != null && !directory) {
+          throw new IllegalArgumentException("Duplicate entry: " + name);
+        }
+      }
+    }
+    return entries;
+  }
+
+  private static void write(
+      Options options, Map<String, Entry> entries, Path file, PrintWriter out)
+      throws IOException, InterruptedException {
+    // compress on the shared pool of daemon threads: the pool of asynchronous tool runs may be
+    // running this tool, waiting for entries queued behind it would deadlock
+    var executor = ForkJoinPool.commonPool();
+    var window = Runtime.getRuntime().availableProcessors() * 4; // bounds the data held in memory
+    var pending = new ArrayDeque<Future<Data>>();
+    var iterator = entries.values().iterator();
+    var stream = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW);
+    try (var zip = new ZipWriter(new BufferedOutputStream(stream, 1 << 16))) {
+      while (iterator.hasNext() || !pending.isEmpty()) {
+        while (iterator.hasNext() && pending.size() < window) {
+          var entry = iterator.next();
+          pending.add(CompletableFuture.supplyAsync(() -> compress(options, entry), executor));
+        }
+        var data = pending.removeFirst().get();
+        zip.write(data);
+        if (options.verbose) out.println(describe(data));
+      }
+      zip.finish();
+    } catch (ExecutionException exception) {
+      var cause = exception.getCause();
+      if (cause instanceof UncheckedIOException unchecked) throw unchecked.getCause();
+      throw new IOException(cause);
+    } finally {
+      pending.forEach(future -> future.cancel(true));
+    }
+  }
+
+  private static Data compress(Options options, Entry entry) {
+    if (entry.file() == null && entry.content() == null) {
+      return new Data(entry, ZipWriter.STORED, new byte[0], 0, 0);
+    }
+    try {
+      var content = entry.content() != null ? entry.content() : Files.readAllBytes(entry.file());
+      var crc = new CRC32();
+      crc.update(content);
+      if (!options.noCompress && !(options.storeCompressed && isCompressed(entry.name()))) {
+        var bytes = new ByteArrayOutputStream(Math.max(64, content.length / 2));
+        var deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try (var stream = new DeflaterOutputStream(bytes, deflater)) {
+          stream.write(content);
+        } finally {
+          deflater.end();
+        }
+        if (bytes.size() < content.length) {
+          var deflated = bytes.toByteArray();
+          return new Data(entry, ZipWriter.DEFLATED, deflated, content.length, crc.getValue());
+        }
+      }
+      return new Data(entry, ZipWriter.STORED, content, content.length, crc.getValue());
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  private static boolean isCompressed(String name) {
+    var dot = name.lastIndexOf('.');
+    if (dot < 0 || name.endsWith("/")) return false;
+    return COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+  }
+
+  private static String describe(Data data) {
+    var name = data.entry().name();
+    if (name.equals(JarFile.MANIFEST_NAME)) return "added manifest";
+    if (data.method() == ZipWriter.STORED) {
+      return "adding: %s(in = %d) (out= %d)(stored 0%%)".formatted(name, data.size(), data.size());
+    }
+    var ratio = data.size() == 0 ? 0 : 100 - data.bytes().length * 100 / data.size();
+    return "adding: %s(in = %d) (out= %d)(deflated %d%%)"
+        .formatted(name, data.size(), data.bytes().length, ratio);
+  }
+
+  /** Writes zip entries with precomputed data, switching to zip64 structures where needed. */
+  static final class ZipWriter extends FilterOutputStream {
+    static final int STORED = 0;
+    static final int DEFLATED = 8;
+
+    private static final int UTF8_FLAG = 0x0800;
+    private static final long LIMIT = 0xFFFFFFFFL;
+
+    private final ByteArrayOutputStream central = new ByteArrayOutputStream();
+    private long written;
+    private long count;
+
+    ZipWriter(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      written++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      out.write(bytes, offset, length);
+      written += length;
+    }
+
+    void write(Data data) throws IOException {
+      var name = data.entry().name().getBytes(StandardCharsets.UTF_8);
+      var offset = written;
+      var version = data.method() == DEFLATED ? 20 : 10;
+      var time = dosTime(data.entry().time());
+      // local file header
+      writeInt(this, 0x04034b50);
+      writeShort(this, version);
+      writeShort(this, UTF8_FLAG);
+      writeShort(this, data.method());
+      writeInt(this, time);
+      writeInt(this, data.crc());
+      writeInt(this, data.bytes().length);
+      writeInt(this, data.size());
+      writeShort(this, name.length);
+      writeShort(this, 0);
+      write(name);
+      write(data.bytes());
+      // central directory header
+      var zip64 = offset >= LIMIT;
+      writeInt(central, 0x02014b50);
+      writeShort(central, zip64 ? 45 : version); // version made by
+      writeShort(central, zip64 ? 45 : version); // version needed
+      writeShort(central, UTF8_FLAG);
+      writeShort(central, data.method());
+      writeInt(central, time);
+      writeInt(central, data.crc());
+      writeInt(central, data.bytes().length);
+      writeInt(central, data.size());
+      writeShort(central, name.length);
+      writeShort(central, zip64 ? 12 : 0); // extra field length
+      writeShort(central, 0); // comment length
+      writeShort(central, 0); // disk number
+      writeShort(central, 0); // internal attributes
+      writeInt(central, 0); // external attributes
+      writeInt(central, zip64 ? LIMIT : offset);
+      central.write(name);
+      if (zip64) {
+        writeShort(central, 0x0001);
+        writeShort(central, 8);
+        writeLong(central, offset);
+      }
+      count++;
+    }
+
+    void finish() throws IOException {
+      var offset = written;
+      var size = central.size();
+      central.writeTo(this);
+      if (count >= 0xFFFF || offset >= LIMIT) {
+        var record = written;
+        writeInt(this, 0x06064b50); // zip64 end of central directory record
+        writeLong(this, 44);
+        writeShort(this, 45);
+        writeShort(this, 45);
+        writeInt(this, 0);
+        writeInt(this, 0);
+        writeLong(this, count);
+        writeLong(this, count);
+        writeLong(this, size);
+        writeLong(this, offset);
+        writeInt(this, 0x07064b50); // zip64 end of central directory locator
+        writeInt(this, 0);
+        writeLong(this, record);
+        writeInt(this, 1);
+      }
+      writeInt(this, 0x06054b50); // end of central directory record
+      writeShort(this, 0);
+      writeShort(this, 0);
+      writeShort(this, (int) Math.min(count, 0xFFFF));
+      writeShort(this, (int) Math.min(count, 0xFFFF));
+      writeInt(this, size);
+      writeInt(this, Math.min(offset, LIMIT));
+      writeShort(this, 0);
+      flush();
+    }
+
+    private static long dosTime(LocalDateTime time) {
+      if (time.getYear() < 1980) time = MIN_DATE;
+      var date = (time.getYear() - 1980) << 9 | time.getMonthValue() << 5 | time.getDayOfMonth();
+      var clock = time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+      return (long) date << 16 | clock;
+    }
+
+    private static void writeShort(OutputStream stream, int value) throws IOException {
+      stream.write(value & 0xFF);
+      stream.write(value >>> 8 & 0xFF);
+    }
+
+    private static void writeInt(OutputStream stream, long value) throws IOException {
+      writeShort(stream, (int) (value & 0xFFFF));
+      writeShort(stream, (int) (value >>> 16 & 0xFFFF));
+    }
+
+    private static void writeLong(OutputStream stream, long value) throws IOException {
+      writeInt(stream, value & LIMIT);
+      writeInt(stream, value >>> 32);
+    }
+  }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import jdk.tools.Command;
+import jdk.tools.Tool;
+import jdk.tools.ToolOperator;
+import jdk.tools.ToolRunner;
+
+/**
+ * A tool operator compiling modules concurrently in the order of their {@code requires} graph.
+ *
+ * <p>Options {@code --module-source-path} and {@code -d} are mandatory. The module source path is
+ * a list of directories that are searched for {@code module-info.java} files, patterns like {@code
+ * ./*}{@code /src/main/java} are not supported. Each module is compiled by a separate {@code javac}
+ * run into {@code <d>/<module>}, which is the layout {@code javac} uses in multi-module mode. The
+ * output directories of all modules a module depends on are prepended to its module path. Option
+ * {@code --module} restricts compilation to the given modules and the modules they depend on. All
+ * other options are passed to each {@code javac} run unchanged. Modules depending on a module that
+ * failed to compile are skipped, and the exit code is non-zero if any module failed or was skipped.
+ */
+public final class ParallelJavac implements ToolOperator {
+  private static final Pattern COMMENT = Pattern.compile("//.*|/\\*(?s:.*?)\\*/");
+
+  private static final Pattern MODULE =
+      Pattern.compile("\\bmodule\\s+([\\w.]+)\\s*\\{(.*)}", Pattern.DOTALL);
+
+  private static final Pattern REQUIRES =
+      Pattern.compile("\\brequires\\s+(?:(?:static|transitive)\\s+)*([\\w.]+)\\s*;");
+
+  @Override
+  public String name() {
+    return "parallel-javac";
+  }
+
+  @Override
+  public int run(ToolRunner runner, PrintWriter out, PrintWriter err, String... args) {
+    Graph graph;
+    try {
+      var options = Options.parse(args);
+      graph = Graph.of(options);
+    } catch (IllegalArgumentException exception) {
+      err.println(exception.getMessage());
+      return 2;
+    } catch (UncheckedIOException exception) {
+      err.println("Reading module declarations failed: " + exception.getCause());
+      return 1;
+    }
+    var javac = runner.context().finder().find("javac").orElseGet(() -> Tool.of("javac"));
+    var failed = graph.run(runner, javac, toNamespaceAndName());
+    if (failed.isEmpty()) return 0;
+    err.println("Compiling modules failed: " + String.join(", ", failed));
+    return 1;
+  }
+
+  /** The options of this operator and the options passed through to each {@code javac} run. */
+  record Options(
+      List<Path> sourcePath,
+      Path destination,
+      Set<String> modules,
+      String modulePath,
+      List<String> others) {
+
+    static Options parse(String... args) {
+      var sourcePath = (String) null;
+      var destination = (String) null;
+      var modules = new LinkedHashSet<String>();
+      var modulePath = (String) null;
+      var others = new ArrayList<String>();
+      var arguments = new ArrayDeque<>(List.of(args));
+      while (!arguments.isEmpty()) {
+        var argument = arguments.removeFirst();
+        var value = (String) null;
+        var equals = argument.indexOf('=');
+        if (argument.startsWith("--") && equals > 0) {
+          value = argument.substring(equals + 1);
+          argument = argument.substring(0, equals);
+        }
+        switch (argument) {
+          case "--module-source-path" -> sourcePath = value(argument, value, arguments);
+          case "-d" -> destination = value(argument, value, arguments);
+          case "-m", "--module" -> {
+            var names = value(argument, value, arguments);
+            modules.addAll(List.of(names.split(",")));
+          }
+          case "-p", "--module-path" -> modulePath = value(argument, value, arguments);
+          default -> {
+            if (argument.endsWith(".java") && !argument.startsWith("-")) {
+              throw new IllegalArgumentException("Source files are not supported: " + argument);
+            }
+            others.add(value == null ? argument : argument + "=" + value);
+          }
+        }
+      }
+      if (sourcePath == null) throw new IllegalArgumentException("Missing --module-source-path");
+      if (destination == null) throw new IllegalArgumentException("Missing -d option");
+      if (sourcePath.contains("*") || sourcePath.contains("{")) {
+        throw new IllegalArgumentException("Unsupported module source path: " + sourcePath);
+      }
+      var paths = Arrays.stream(sourcePath.split(File.pathSeparator)).map(Path::of).toList();
+      return new Options(paths, Path.of(destination), modules, modulePath, List.copyOf(others));
+    }
+
+    private static String value(String option, String value, ArrayDeque<String> arguments) {
+      if (value != null) return value;
+      var next = arguments.pollFirst();
+      if (next == null) throw new IllegalArgumentException("Missing value for " + option);
+      return next;
+    }
+  }
+
+  /** A module declared in the module source path, the requires of other modules are ignored. */
+  static final class Module {
+    final String name;
+    final Path directory;
+    final Set<String> requires;
+    final List<Module> successors = new ArrayList<>();
+    final Set<Module> dependencies = new LinkedHashSet<>();
+
+    Module(String name, Path directory, Set<String> requires) {
+      this.name = name;
+      this.directory = directory;
+      this.requires = requires;
+    }
+  }
+
+  record Graph(Options options, List<Module> modules) {
+
+    static Graph of(Options options) {
+      var declared = new TreeMap<String, Module>();
+      for (var root : options.sourcePath()) {
+        for (var info : find(root)) {
+          var module = parse(info);
+          var existing = declared.putIfAbsent(module.name, module);
+          if (existing != null) {
+            var message = "Module %s declared in %s and %s";
+            throw new IllegalArgumentException(
+                message.formatted(module.name, existing.directory, module.directory));
+          }
+        }
+      }
+      for (var name : options.modules()) {
+        if (declared.containsKey(name)) continue;
+        throw new IllegalArgumentException("Module not found: " + name);
+      }
+      var selected = new LinkedHashSet<Module>();
+      var roots = options.modules().isEmpty() ? declared.keySet() : options.modules();
+      for (var name : roots) select(declared, declared.get(name), selected, new ArrayList<>());
+      for (var module : selected) {
+        for (var required : module.requires) {
+          var dependency = declared.get(required);
+          if (dependency == null) continue; // a system module or one on the module path
+          dependency.successors.add(module);
+          module.dependencies.add(dependency);
+          module.dependencies.addAll(dependency.dependencies);
+        }
+      }
+      return new Graph(options, List.copyOf(selected));
+    }
+
+    /** Adds the given module after its dependencies, in depth-first post-order. */
+    private static void select(
+        Map<String, Module> declared, Module module, Set<Module> selected, List<String> stack) {
+      if (selected.contains(module)) return;
+      if (stack.contains(module.name)) {
+        var cycle = new ArrayList<>(stack.subList(stack.indexOf(module.name), stack.size()));
+        cycle.add(module.name);
+        var message = "Cyclic module dependences: " + String.join(" -> ", cycle);
+        throw new IllegalArgumentException(message);
+      }
+      stack.add(module.name);
+      for (var required : module.requires) {
+        var dependency = declared.get(required);
+        if (dependency != null) select(declared, dependency, selected, stack);
+      }
+      stack.remove(stack.size() - 1);
+      selected.add(module);
+    }
+
+    private static List<Path> find(Path root) {
+      if (!Files.isDirectory(root)) {
+        throw new IllegalArgumentException("Module source path entry not found: " + root);
+      }
+      try (var stream = Files.walk(root)) {
+        return stream
+            .filter(path -> path.getFileName().toString().equals("module-info.java"))
+            .sorted()
+            .toList();
+      } catch (IOException exception) {
+        throw new UncheckedIOException(exception);
+      }
+    }
+
+    static Module parse(Path info) {
+      String source;
+      try {
+        source = COMMENT.matcher(Files.readString(info)).replaceAll(" ");
+      } catch (IOException exception) {
+        throw new UncheckedIOException(exception);
+      }
+      var module = MODULE.matcher(source);
+      if (!module.find()) throw new IllegalArgumentException("No module declaration in " + info);
+      var requires = new LinkedHashSet<String>();
+      var matcher = REQUIRES.matcher(module.group(2));
+      while (matcher.find()) requires.add(matcher.group(1));
+      return new Module(module.group(1), info.getParent(), requires);
+    }
+
+    Command command(Module module) {
+      var destination = options.destination();
+      var modulePath = new ArrayList<String>();
+      for (var dependency : module.dependencies) {
+        modulePath.add(destination.resolve(dependency.name).toString());
+      }
+      if (options.modulePath() != null) modulePath.add(options.modulePath());
+      var sources = sources(module.directory);
+      var command = Command.of("javac").with("-d", destination.resolve(module.name).toString());
+      if (!modulePath.isEmpty()) {
+        command = command.with("--module-path", String.join(File.pathSeparator, modulePath));
+      }
+      return command.with(options.others().stream()).with(sources.stream());
+    }
+
+    // all source files of a module, skipping subtrees declaring other modules
+    private static List<String> sources(Path root) {
+      var sources = new ArrayList<String>();
+      var visitor =
+          new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path folder, BasicFileAttributes attributes) {
+              if (folder.equals(root)) return FileVisitResult.CONTINUE;
+              var nested = Files.isRegularFile(folder.resolve("module-info.java"));
+              return nested ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+              var java = attributes.isRegularFile() && file.toString().endsWith(".java");
+              if (java) sources.add(file.toString());
+              return FileVisitResult.CONTINUE;
+            }
+          };
+      try {
+        Files.walkFileTree(root, visitor);
+      } catch (IOException exception) {
+        throw new UncheckedIOException(exception);
+      }
+      Collections.sort(sources);
+      return List.copyOf(sources);
+    }
+
+    /**
+     * Runs {@code javac} for all modules, skipping modules depending on a module that failed.
+     *
+     * @return the names of all modules that failed or were skipped, in declaration order
+     */
+    List<String> run(ToolRunner runner, Tool javac, String name) {
+      var printer = runner.context().printer();
+      var failed = ConcurrentHashMap.<Module>newKeySet();
+      var nodes = new LinkedHashMap<Module, GraphScheduler.Node>();
+      for (var module : modules) {
+        var command = command(module);
+        Runnable action =
+            () -> {
+              if (module.dependencies.stream().anyMatch(failed::contains)) {
+                failed.add(module);
+                return;
+              }
+              try {
+                runner.run(printer, javac, command);
+              } catch (RuntimeException exception) {
+                printer.err().println(module.name + ": " + exception.getMessage());
+                failed.add(module);
+              }
+            };
+        nodes.put(module, new GraphScheduler.Node(action, List.of(command)));
+      }
+      for (var module : modules) {
+        for (var successor : module.successors) nodes.get(module).precede(nodes.get(successor));
+      }
+      // one thread per processor, the resource budget admits the actual javac runs
+      var parallelism = Runtime.getRuntime().availableProcessors();
+      GraphScheduler.run(name, List.copyOf(nodes.values()), parallelism);
+      return modules.stream().filter(failed::contains).map(module -> module.name).toList();
+    }
+  }
+}
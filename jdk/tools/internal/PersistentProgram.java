@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import jdk.tools.Program;
+import jdk.tools.ToolTimeoutException;
+
+/**
+ * Runs a program as up to a fixed number of long-lived processes, launched on demand.
+ *
+ * <p>Each process handles one request at a time. A process that exits or breaks the protocol
+ * while handling a request is discarded, and the request is retried once with a new process. A
+ * process whose request was interrupted or timed out is destroyed and never reused, an interrupted
+ * request returns exit code {@code -1} without being retried.
+ *
+ * @see Program.PersistentWorkers
+ */
+public final class PersistentProgram implements Program.PersistentWorkers {
+  private final Program program;
+  private final List<String> arguments;
+  private final Semaphore permits;
+  private final BlockingQueue<Connection> idle = new LinkedBlockingQueue<>();
+  private volatile boolean closed;
+
+  public PersistentProgram(Program program, int size, List<String> arguments) {
+    if (size < 1) throw new IllegalArgumentException("size must be positive");
+    this.program = program;
+    this.arguments = List.copyOf(arguments);
+    this.permits = new Semaphore(size);
+  }
+
+  @Override
+  public String name() {
+    return program.name();
+  }
+
+  @Override
+  public int run(PrintWriter out, PrintWriter err, String... args) {
+    if (closed) throw new IllegalStateException("Persistent workers are closed: " + name());
+    try {
+      permits.acquire();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      return -1;
+    }
+    try {
+      for (int attempt = 1; ; attempt++) {
+        var connection = idle.poll();
+        if (connection == null) connection = new Connection(launch());
+        var response = connection.run(args);
+        if (response == Response.INTERRUPTED) return -1; // the process was destroyed, don't retry
+        if (response == null) {
+          if (attempt == 1) continue; // the process crashed: retry once with a new process
+          err.println("Persistent worker of %s crashed twice".formatted(name()));
+          return 1;
+        }
+        if (closed || connection.destroyed) connection.close();
+        else idle.add(connection);
+        if (!response.out().isEmpty()) out.print(response.out());
+        if (!response.err().isEmpty()) err.print(response.err());
+        out.flush();
+        err.flush();
+        return response.code();
+      }
+    } catch (IOException exception) {
+      exception.printStackTrace(err);
+      return 1;
+    } finally {
+      permits.release();
+    }
+  }
+
+  private Process launch() throws IOException {
+    var command = new ArrayList<>(program.command());
+    command.addAll(arguments);
+    return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    for (var connection = idle.poll(); connection != null; connection = idle.poll()) {
+      connection.close();
+    }
+  }
+
+  private record Response(int code, String out, String err) {
+    static final Response CLOSED = new Response(Integer.MIN_VALUE, "", "");
+    static final Response INTERRUPTED = new Response(-1, "", "");
+  }
+
+  private final class Connection {
+    private final Process process;
+    private final DataOutputStream requests;
+    private final BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+    private volatile boolean destroyed;
+
+    Connection(Process process) {
+      this.process = process;
+      this.requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+      var receiver = new Thread(this::receive, "jdk.tools-" + name() + "-" + process.pid());
+      receiver.setDaemon(true);
+      receiver.start();
+    }
+
+    // runs in a dedicated thread as reading from a process is not interruptible
+    private void receive() {
+      try (var stream = new DataInputStream(new BufferedInputStream(process.getInputStream()))) {
+        while (true) {
+          var code = stream.readInt();
+          responses.add(new Response(code, Worker.readString(stream), Worker.readString(stream)));
+        }
+      } catch (IOException exception) {
+        responses.add(Response.CLOSED);
+      }
+    }
+
+    // returns null if the process exited or broke the protocol before responding, and a process
+    // destroyed after an interrupt returns INTERRUPTED: neither is ever reused
+    Response run(String... args) {
+      try {
+        requests.writeInt(args.length);
+        for (var arg : args) Worker.writeString(requests, arg);
+        requests.flush();
+        var timeout = program.timeout();
+        var response =
+            timeout.isZero()
+                ? responses.take()
+                : responses.poll(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        if (response == null) {
+          destroy();
+          throw new ToolTimeoutException(name(), timeout);
+        }
+        if (response != Response.CLOSED) return response;
+      } catch (IOException exception) {
+        // the process exited before reading the request
+      } catch (InterruptedException exception) {
+        // the process can't be reused as the interrupted request may still be ongoing
+        destroy();
+        Thread.currentThread().interrupt();
+        return Response.INTERRUPTED;
+      }
+      destroy();
+      return null;
+    }
+
+    private void destroy() {
+      destroyed = true;
+      process.descendants().forEach(ProcessHandle::destroyForcibly);
+      process.destroyForcibly();
+    }
+
+    void close() {
+      try {
+        requests.close(); // persistent workers exit on end of input
+      } catch (IOException exception) {
+        destroy();
+      }
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Waits for operating system processes while sampling their resource usage.
+ *
+ * <p>CPU time is read from {@link ProcessHandle.Info#totalCpuDuration()} of each process and its
+ * descendants, and peak resident memory from the {@code VmHWM} entry of {@code /proc/<pid>/status}
+ * where available. Samples are taken at increasing intervals while processes are alive: exited
+ * processes are reaped immediately and can't be read anymore. To account for CPU time used after
+ * the last sample, the CPU time of terminated children of this virtual machine, reported by {@code
+ * /proc/self/stat} on Linux, is read before and after waiting. Its difference is used if it is
+ * larger than the sampled CPU time and no other sampler waited concurrently, as the kernel doesn't
+ * attribute it to individual children. Resources of short-lived processes are underestimated
+ * otherwise.
+ */
+public final class ProcessSampler {
+  private static final long MIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private static final long MAX_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+  // the fixed unit of times reported by /proc files
+  private static final long USER_HZ = 100;
+
+  private static final AtomicInteger ACTIVE = new AtomicInteger();
+
+  private static final AtomicLong STARTED = new AtomicLong();
+
+  private final Map<Long, Long> cpu = new HashMap<>();
+  private long reaped;
+  private long peak;
+
+  /**
+   * Waits for all given processes to exit, sampling them in between.
+   *
+   * @param processes the processes to wait for
+   * @param timeout the maximum time to wait, zero to wait without a time limit
+   * @return {@code true} if all processes exited, {@code false} if the time limit was reached
+   */
+  public boolean await(List<Process> processes, Duration timeout) throws InterruptedException {
+    var deadline = timeout.isZero() ? Long.MAX_VALUE : System.nanoTime() + timeout.toNanos();
+    var interval = MIN_INTERVAL_NANOS;
+    var exclusive = ACTIVE.incrementAndGet() == 1;
+    var generation = STARTED.incrementAndGet();
+    var children = childrenCpuTime();
+    try {
+      for (var process : processes) {
+        while (true) {
+          sample(processes);
+          var remaining = deadline - System.nanoTime();
+          if (remaining <= 0) return false;
+          if (process.waitFor(Math.min(interval, remaining), TimeUnit.NANOSECONDS)) break;
+          interval = Math.min(interval * 2, MAX_INTERVAL_NANOS);
+        }
+      }
+      if (exclusive && children >= 0 && STARTED.get() == generation) {
+        reaped = Math.max(0, childrenCpuTime() - children);
+      }
+      return true;
+    } finally {
+      ACTIVE.decrementAndGet();
+    }
+  }
+
+  /** Adds the sampled usage to the resource usage measurement of the current thread. */
+  public void report() {
+    var total = 0L;
+    for (var nanos : cpu.values()) total += nanos;
+    ResourceUsage.addProcess(Math.max(total, reaped), peak);
+  }
+
+  private void sample(List<Process> processes) {
+    var resident = 0L;
+    for (var process : processes) {
+      if (!process.isAlive()) continue;
+      resident += sample(process.toHandle());
+      for (var descendant : process.descendants().toList()) resident += sample(descendant);
+    }
+    peak = Math.max(peak, resident);
+  }
+
+  // record the CPU time and return the peak resident memory of a single process
+  private long sample(ProcessHandle process) {
+    var pid = process.pid();
+    process.info().totalCpuDuration().ifPresent(d -> cpu.merge(pid, d.toNanos(), Math::max));
+    try {
+      for (var line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"))) {
+        if (!line.startsWith("VmHWM:")) continue;
+        var value = line.substring(6).strip(); // like "1234 kB"
+        return Long.parseLong(value.substring(0, value.indexOf(' '))) * 1024;
+      }
+    } catch (IOException | RuntimeException exception) {
+      // not available on this operating system, or the process has exited
+    }
+    return 0;
+  }
+
+  // CPU time in nanoseconds of terminated and waited-for children of this process, or -1
+  private static long childrenCpuTime() {
+    try {
+      var stat = Files.readString(Path.of("/proc/self/stat"));
+      // fields after the command name in parentheses, starting with the state as field 3
+      var fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+      var ticks = Long.parseLong(fields[16 - 3]) + Long.parseLong(fields[17 - 3]); // cutime, cstime
+      return ticks * TimeUnit.SECONDS.toNanos(1) / USER_HZ;
+    } catch (IOException | RuntimeException exception) {
+      return -1; // not available on this operating system
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import jdk.tools.Program;
+import jdk.tools.Tool;
+import jdk.tools.ToolFinder;
+
+/**
+ * A tool finder exposing all executable files in a list of folders as program tools.
+ *
+ * <p>The folders are scanned in parallel when tools are requested for the first time and the
+ * result is kept in an in-memory index. The index is rebuilt when the last-modified time of any
+ * folder changed, which is checked at most once per {@link #RECHECK_MILLIS} milliseconds. Like
+ * with the {@code PATH} environment variable, a program found in an earlier folder shadows
+ * programs with the same name in later folders. The namespace of each tool is the folder it was
+ * found in, so a shadowed program can be found via its {@code folder/name} string.
+ */
+public final class ProgramToolFinder implements ToolFinder {
+  public static final long RECHECK_MILLIS = 1000;
+
+  private static final boolean WINDOWS =
+      System.getProperty("os.name", "").toLowerCase().contains("win");
+
+  private record Index(List<Tool> tools, Map<String, Tool> names, Map<Path, FileTime> times) {}
+
+  private final List<Path> folders;
+  private volatile Index index;
+  private volatile long checked;
+
+  public ProgramToolFinder(List<Path> folders) {
+    this.folders = List.copyOf(folders);
+  }
+
+  @Override
+  public List<Tool> tools() {
+    return index().tools();
+  }
+
+  @Override
+  public Optional<Tool> find(String string) {
+    var tool = index().names().get(string);
+    return tool != null ? Optional.of(tool) : ToolFinder.super.find(string);
+  }
+
+  private Index index() {
+    var current = index;
+    var now = System.currentTimeMillis();
+    if (current != null && now - checked < RECHECK_MILLIS) return current;
+    synchronized (this) {
+      if (index != current) return index;
+      if (current == null || !current.times().equals(lastModifiedTimes())) index = scan();
+      checked = now;
+      return index;
+    }
+  }
+
+  private Map<Path, FileTime> lastModifiedTimes() {
+    var times = new HashMap<Path, FileTime>();
+    for (var folder : folders) {
+      try {
+        times.put(folder, Files.getLastModifiedTime(folder));
+      } catch (IOException exception) {
+        // missing or unreadable folder
+      }
+    }
+    return times;
+  }
+
+  private Index scan() {
+    var times = lastModifiedTimes();
+    var scans = folders.parallelStream().map(ProgramToolFinder::scan).toList();
+    var tools = scans.stream().flatMap(List::stream).toList();
+    var names = new HashMap<String, Tool>();
+    for (var tool : tools) names.putIfAbsent(tool.name(), tool);
+    return new Index(tools, Map.copyOf(names), Map.copyOf(times));
+  }
+
+  private static List<Tool> scan(Path folder) {
+    if (!Files.isDirectory(folder)) return List.of();
+    var namespace = folder.toString();
+    var tools = new ArrayList<Tool>();
+    try (Stream<Path> files = Files.list(folder)) {
+      for (var file : files.sorted().toList()) {
+        var name = file.getFileName().toString();
+        if (WINDOWS) {
+          if (!name.toLowerCase().endsWith(".exe")) continue;
+          name = name.substring(0, name.length() - 4);
+        }
+        if (!Files.isRegularFile(file) || !Files.isExecutable(file)) continue;
+        var program = new Program(name, List.of(file.toString()));
+        tools.add(Tool.of(namespace, name, program));
+      }
+    } catch (IOException exception) {
+      return List.of();
+    }
+    return List.copyOf(tools);
+  }
+}
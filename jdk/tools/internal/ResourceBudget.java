@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import jdk.tools.Tool.Weight;
+
+/**
+ * Admits tool runs only while their accumulated weights fit into the available resources.
+ *
+ * <p>Processor usage is bounded by a fixed number of processors. Memory reserved for in-process
+ * tool runs is bounded by the maximum heap size minus the heap used outside of reservations.
+ * Memory reserved for program runs is bounded by the configured memory budget or, if there is
+ * none, by the physical memory available at admission time. Weights exceeding the budget are clamped to it, so a tool
+ * run is always admitted if no other weighted tool run is active. Runs without weight, like tool
+ * operators waiting for nested runs, are admitted immediately and do not count as active.
+ */
+public final class ResourceBudget {
+  private static final ResourceBudget SYSTEM =
+      new ResourceBudget(systemProcessors(), systemPhysicalMemory());
+
+  private static final Path MEMORY_INFO = Path.of("/proc/meminfo");
+
+  private static final long RECHECK_MILLIS = 100;
+
+  // -Djdk.tools.budget.cpus=<number of processors>
+  private static double systemProcessors() {
+    var cpus = System.getProperty("jdk.tools.budget.cpus");
+    return cpus == null ? Runtime.getRuntime().availableProcessors() : Double.parseDouble(cpus);
+  }
+
+  // -Djdk.tools.budget.memory=<bytes of physical memory for programs>, or 0 for available memory
+  private static long systemPhysicalMemory() {
+    var memory = System.getProperty("jdk.tools.budget.memory");
+    return memory == null ? 0 : Long.parseLong(memory);
+  }
+
+  /** {@return the budget shared by all tool runners of this virtual machine} */
+  public static ResourceBudget ofSystem() {
+    return SYSTEM;
+  }
+
+  private final double cpus;
+  private final long physicalMemory;
+  private double reservedCpus;
+  private long reservedHeap;
+  private long reservedPhysical;
+  private int active;
+
+  public ResourceBudget(double cpus) {
+    this(cpus, 0);
+  }
+
+  /**
+   * Creates a budget.
+   *
+   * @param cpus the number of processors
+   * @param physicalMemory the bytes of physical memory for program runs, zero for the physical
+   *     memory available at admission time
+   */
+  public ResourceBudget(double cpus, long physicalMemory) {
+    this.cpus = cpus;
+    this.physicalMemory = physicalMemory;
+  }
+
+  /**
+   * Blocks until the given weight fits into this budget.
+   *
+   * @param weight the resources to reserve
+   * @param external {@code true} if the memory is used by an operating system process
+   * @return a lease releasing the reserved resources when closed
+   */
+  public synchronized Lease acquire(Weight weight, boolean external) throws InterruptedException {
+    if (weight.equals(Weight.NONE)) return new Lease(weight, external);
+    weight = clamp(weight, external);
+    while (active > 0 && !fits(weight, external)) wait(RECHECK_MILLIS);
+    active++;
+    reservedCpus += weight.cpus();
+    if (external) reservedPhysical += weight.memory();
+    else reservedHeap += weight.memory();
+    return new Lease(weight, external);
+  }
+
+  private synchronized void release(Weight weight, boolean external) {
+    if (weight.equals(Weight.NONE)) return;
+    active--;
+    reservedCpus -= weight.cpus();
+    if (external) reservedPhysical -= weight.memory();
+    else reservedHeap -= weight.memory();
+    notifyAll();
+  }
+
+  // an oversized weight would never fit, limit it to the whole budget
+  private Weight clamp(Weight weight, boolean external) {
+    var memory = external ? physicalMemory() : Runtime.getRuntime().maxMemory();
+    var clamped = new Weight(Math.min(weight.cpus(), cpus), Math.min(weight.memory(), memory));
+    return clamped.equals(weight) ? weight : clamped;
+  }
+
+  private boolean fits(Weight weight, boolean external) {
+    if (reservedCpus + weight.cpus() > cpus) return false;
+    var memory = weight.memory();
+    if (memory == 0) return true;
+    if (external) return reservedPhysical + memory <= physicalMemory();
+    return reservedHeap + memory <= heapMemory();
+  }
+
+  private long physicalMemory() {
+    return physicalMemory > 0 ? physicalMemory : availablePhysicalMemory();
+  }
+
+  // the heap of admitted runs is covered by their reservations, the rest is used by others
+  private long heapMemory() {
+    var runtime = Runtime.getRuntime();
+    var used = runtime.totalMemory() - runtime.freeMemory();
+    return runtime.maxMemory() - Math.max(0, used - reservedHeap);
+  }
+
+  // "MemAvailable:    1234567 kB", or the free memory reported by the operating system
+  private static long availablePhysicalMemory() {
+    if (Files.isReadable(MEMORY_INFO)) {
+      try (var lines = Files.lines(MEMORY_INFO)) {
+        var available =
+            lines
+                .filter(line -> line.startsWith("MemAvailable:"))
+                .map(line -> line.substring(13).replace("kB", "").strip())
+                .mapToLong(kilobytes -> Long.parseLong(kilobytes) * 1024)
+                .findFirst();
+        if (available.isPresent()) return available.getAsLong();
+      } catch (IOException | RuntimeException exception) {
+        // fall back to the operating system bean
+      }
+    }
+    var system = ManagementFactory.getOperatingSystemMXBean();
+    if (system instanceof com.sun.management.OperatingSystemMXBean bean) {
+      return bean.getFreeMemorySize();
+    }
+    return Long.MAX_VALUE;
+  }
+
+  /** Reserved resources of an admitted tool run. */
+  public final class Lease implements AutoCloseable {
+    private final Weight weight;
+    private final boolean external;
+    private boolean closed;
+
+    private Lease(Weight weight, boolean external) {
+      this.weight = weight;
+      this.external = external;
+    }
+
+    @Override
+    public void close() {
+      if (closed) return;
+      closed = true;
+      release(weight, external);
+    }
+  }
+}
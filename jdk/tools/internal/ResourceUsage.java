@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures resources used by a tool run on the current thread.
+ *
+ * <p>In-process runs are measured by the CPU time and the heap bytes allocated by the running
+ * thread, including nested runs on the same thread. Threads started by a tool are not measured.
+ * Operating system processes report their sampled CPU time and peak resident memory to the
+ * innermost measurement of the thread waiting for them, which passes them on to enclosing
+ * measurements when stopped. Values not supported by this virtual machine are reported as zero.
+ */
+public final class ResourceUsage {
+  private static final ThreadLocal<ResourceUsage> CURRENT = new ThreadLocal<>();
+
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+  /** A measurement that measures nothing and reports zero, for runs whose usage is discarded. */
+  public static final ResourceUsage NONE = new ResourceUsage(null, false);
+
+  /** {@return a new measurement started on the current thread} */
+  public static ResourceUsage start() {
+    var usage = new ResourceUsage(CURRENT.get(), true);
+    CURRENT.set(usage);
+    return usage;
+  }
+
+  /** Adds resources used by an operating system process to the current measurement, if any. */
+  public static void addProcess(long cpuNanos, long peakBytes) {
+    var usage = CURRENT.get();
+    if (usage == null) return;
+    usage.processCpu += cpuNanos;
+    usage.peak = Math.max(usage.peak, peakBytes);
+  }
+
+  private static long threadCpuTime() {
+    if (!THREADS.isCurrentThreadCpuTimeSupported() || !THREADS.isThreadCpuTimeEnabled()) return 0;
+    return THREADS.getCurrentThreadCpuTime();
+  }
+
+  private static long threadAllocatedBytes() {
+    if (THREADS instanceof com.sun.management.ThreadMXBean threads
+        && threads.isThreadAllocatedMemorySupported()
+        && threads.isThreadAllocatedMemoryEnabled()) {
+      return threads.getCurrentThreadAllocatedBytes();
+    }
+    return 0;
+  }
+
+  private final ResourceUsage parent;
+  private final long startCpu;
+  private final long startAllocated;
+  private long cpu;
+  private long allocated;
+  private long processCpu;
+  private long peak;
+
+  private ResourceUsage(ResourceUsage parent, boolean started) {
+    this.parent = parent;
+    this.startCpu = started ? threadCpuTime() : 0;
+    this.startAllocated = started ? threadAllocatedBytes() : 0;
+  }
+
+  /** Stops this measurement and restores the enclosing measurement of the current thread. */
+  public void stop() {
+    if (this == NONE) return;
+    cpu = threadCpuTime() - startCpu + processCpu;
+    allocated = threadAllocatedBytes() - startAllocated;
+    if (parent == null) CURRENT.remove();
+    else {
+      CURRENT.set(parent);
+      parent.processCpu += processCpu;
+      parent.peak = Math.max(parent.peak, peak);
+    }
+  }
+
+  /** {@return the CPU time in nanoseconds used by the thread and by processes} */
+  public long cpuTime() {
+    return cpu;
+  }
+
+  /** {@return the number of heap bytes allocated by the thread} */
+  public long allocatedBytes() {
+    return allocated;
+  }
+
+  /** {@return the largest peak resident memory in bytes of processes} */
+  public long peakResidentBytes() {
+    return peak;
+  }
+}
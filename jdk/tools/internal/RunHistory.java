@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import jdk.tools.Command;
+
+/**
+ * Remembers durations of previous tool runs keyed by a normalized command signature.
+ *
+ * <p>The signature of a command consists of the tool name and a hash of its arguments with all
+ * sequences of digits replaced by a {@code #} character. This lets repeated runs of a command
+ * differing only in version numbers, timestamps, or generated folder names share a history entry.
+ * Durations are stored as an exponentially weighted moving average in nanoseconds.
+ *
+ * <p>Run histories are persisted to a line-based file of {@code signature=nanos} pairs only when
+ * created with a file. The system run history uses the file specified by the {@code
+ * jdk.tools.history} system property and saves it once at shutdown, or records nothing if that
+ * property is not set. A history is an optimization: a file that cannot be read is ignored and a
+ * file that cannot be written is reported on the standard error stream, neither fails a run.
+ */
+public final class RunHistory {
+  private static final RunHistory SYSTEM = newSystemRunHistory();
+
+  // -Djdk.tools.history=<file>
+  private static RunHistory newSystemRunHistory() {
+    var file = System.getProperty("jdk.tools.history");
+    if (file == null) return new RunHistory(null);
+    var history = new RunHistory(Path.of(file));
+    var hook = new Thread(history::save, "jdk.tools-history-writer");
+    Runtime.getRuntime().addShutdownHook(hook);
+    return history;
+  }
+
+  /** {@return the run history shared by all tool runners of this virtual machine} */
+  public static RunHistory ofSystem() {
+    return SYSTEM;
+  }
+
+  /** {@return the normalized signature of the given command} */
+  public static String signature(Command command) {
+    var hash = 0xcbf29ce484222325L; // 64-bit FNV-1a
+    for (var argument : command.arguments()) {
+      var digits = false;
+      for (int i = 0; i < argument.length(); i++) {
+        var c = argument.charAt(i);
+        if (c >= '0' && c <= '9') {
+          if (digits) continue;
+          digits = true;
+          c = '#';
+        } else digits = false;
+        hash = (hash ^ c) * 0x100000001b3L;
+      }
+      hash *= 0x100000001b3L; // separate arguments
+    }
+    return command.tool() + '#' + Long.toHexString(hash);
+  }
+
+  /** The maximum number of entries of a history. */
+  public static final int MAX_ENTRIES = 10_000;
+
+  private final Path file;
+  private final Map<String, Long> durations = new ConcurrentHashMap<>();
+  private volatile boolean loaded;
+  private volatile boolean dirty;
+
+  public RunHistory(Path file) {
+    this.file = file;
+  }
+
+  /** {@return the expected duration of the given command in nanoseconds, or -1 if unknown} */
+  public long expected(Command command) {
+    if (file == null) return -1;
+    load();
+    return durations.getOrDefault(signature(command), -1L);
+  }
+
+  /**
+   * Records the duration of a completed run of the given command.
+   *
+   * <p>Nothing is recorded by a history without a file. Once a history holds {@value
+   * #MAX_ENTRIES} entries, only durations of commands already known are updated.
+   */
+  public void record(Command command, long nanos) {
+    if (file == null) return;
+    load();
+    var key = signature(command);
+    if (durations.size() >= MAX_ENTRIES && !durations.containsKey(key)) return;
+    durations.merge(key, nanos, (average, sample) -> (average * 7 + sample * 3) / 10);
+    dirty = true;
+  }
+
+  private void load() {
+    if (loaded) return;
+    synchronized (this) {
+      if (loaded) return;
+      if (file != null && Files.isRegularFile(file)) {
+        try (var lines = Files.lines(file)) {
+          lines.forEach(this::parse);
+        } catch (IOException | UncheckedIOException exception) {
+          durations.clear(); // start empty
+          System.err.println("Ignoring unreadable run history " + file + ": " + exception);
+        }
+      }
+      loaded = true;
+    }
+  }
+
+  private void parse(String line) {
+    var separator = line.lastIndexOf('=');
+    if (line.startsWith("#") || separator <= 0) return;
+    try {
+      var nanos = Long.parseLong(line.substring(separator + 1).strip());
+      if (durations.size() >= MAX_ENTRIES) return;
+      durations.putIfAbsent(line.substring(0, separator).strip(), nanos);
+    } catch (NumberFormatException exception) {
+      // ignore malformed line
+    }
+  }
+
+  /**
+   * Writes all durations to the file of this history, if it has one and was changed.
+   *
+   * <p>Failures are reported on the standard error stream and not thrown.
+   */
+  public synchronized void save() {
+    if (file == null || !dirty) return;
+    dirty = false;
+    var lines = new ArrayList<String>();
+    new TreeMap<>(durations).forEach((key, nanos) -> lines.add(key + '=' + nanos));
+    try {
+      var parent = file.toAbsolutePath().getParent();
+      Files.createDirectories(parent);
+      var temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+      Files.write(temporary, lines);
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException | RuntimeException exception) {
+      System.err.println("Saving run history failed: " + file + ": " + exception);
+    }
+  }
+}
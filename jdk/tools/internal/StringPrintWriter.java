@@ -26,13 +26,13 @@
 package jdk.tools.internal;
 
 import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.Writer;
 
 public final class StringPrintWriter extends PrintWriter {
   private final PrintWriter other;
 
-  public StringPrintWriter(PrintWriter other) {
-    super(new StringWriter(512));
+  public StringPrintWriter(PrintWriter other, int limit) {
+    super(new BoundedStringWriter(limit));
     this.other = other;
   }
 
@@ -77,4 +77,51 @@ public final class StringPrintWriter extends PrintWriter {
   public String toString() {
     return super.out.toString();
   }
+
+  /** {@return the number of characters written, including those not kept} */
+  public long length() {
+    flush();
+    return ((BoundedStringWriter) super.out).length();
+  }
+
+  /** A string writer keeping at most a given number of characters. */
+  private static final class BoundedStringWriter extends Writer {
+    private final StringBuilder builder = new StringBuilder(512);
+    private final int limit;
+    private long truncated;
+
+    BoundedStringWriter(int limit) {
+      this.limit = limit;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+      var accepted = Math.max(0, Math.min(length, limit - builder.length()));
+      builder.append(chars, offset, accepted);
+      truncated += length - accepted;
+    }
+
+    @Override
+    public void write(String string, int offset, int length) {
+      var accepted = Math.max(0, Math.min(length, limit - builder.length()));
+      builder.append(string, offset, offset + accepted);
+      truncated += length - accepted;
+    }
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {}
+
+    long length() {
+      return builder.length() + truncated;
+    }
+
+    @Override
+    public String toString() {
+      if (truncated == 0) return builder.toString();
+      return builder + System.lineSeparator() + "[... " + truncated + " characters truncated]";
+    }
+  }
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs subtasks concurrently and shuts down as soon as one of them fails.
+ *
+ * <p>Shutting down a scope discards all subtasks not yet started and interrupts the threads of all
+ * running subtasks. Subtasks that fail with their thread being interrupted after shutdown are
+ * treated as cancelled, not as failures. The number of subtasks forked but not yet completed is
+ * bounded, which blocks the forking thread until a worker becomes available.
+ */
+public final class TaskScope implements AutoCloseable {
+  private final String name;
+  private final ThreadPoolExecutor executor;
+  private final Semaphore permits;
+  private final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger forked = new AtomicInteger();
+  private final AtomicInteger cancelled = new AtomicInteger();
+  private volatile boolean shutdown;
+
+  public TaskScope(String name, int parallelism) {
+    var counter = new AtomicInteger();
+    this.name = name;
+    this.permits = new Semaphore(parallelism * 2);
+    this.executor =
+        new ThreadPoolExecutor(
+            parallelism,
+            parallelism,
+            0,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+              var thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /** {@return {@code true} if the subtask was scheduled, or {@code false} after shutdown} */
+  public boolean fork(Runnable subtask) throws InterruptedException {
+    if (shutdown) return false;
+    var trace = TraceRecorder.ofSystem();
+    var waiting = trace.begin();
+    permits.acquire();
+    trace.end("fork " + name, "queue", waiting);
+    try {
+      executor.execute(() -> runSubtask(subtask));
+      forked.incrementAndGet();
+      return true;
+    } catch (RejectedExecutionException exception) {
+      permits.release();
+      return false;
+    }
+  }
+
+  private void runSubtask(Runnable subtask) {
+    try {
+      subtask.run();
+    } catch (Throwable throwable) {
+      fail(throwable);
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * Records the failure of a subtask running on the current thread and shuts this scope down.
+   *
+   * <p>Subtasks signalling their completion to the forking thread call this method before doing
+   * so, in order to have the failure recorded before the forking thread shuts this scope down and
+   * interrupts them. A failure of a subtask interrupted after shutdown is counted as cancelled.
+   */
+  public void fail(Throwable throwable) {
+    if (shutdown && Thread.currentThread().isInterrupted()) cancelled.incrementAndGet();
+    else {
+      failures.add(throwable);
+      shutdown();
+    }
+  }
+
+  /** Discards all queued subtasks and interrupts all running subtasks. */
+  public void shutdown() {
+    shutdown = true;
+    List<Runnable> discarded = executor.shutdownNow();
+    cancelled.addAndGet(discarded.size());
+    permits.release(discarded.size());
+  }
+
+  /** Waits for all forked subtasks to complete or to be cancelled. */
+  public void join() throws InterruptedException {
+    var trace = TraceRecorder.ofSystem();
+    var waiting = trace.begin();
+    executor.shutdown();
+    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    trace.end("join " + name, "queue", waiting);
+  }
+
+  /** Throws an exception carrying all failures of subtasks as suppressed exceptions, if any. */
+  public void throwIfFailed() {
+    if (failures.isEmpty()) return;
+    var message =
+        "%s failed: %d of %d commands failed, %d cancelled"
+            .formatted(name, failures.size(), forked.get(), cancelled.get());
+    var exception = new RuntimeException(message);
+    failures.forEach(exception::addSuppressed);
+    throw exception;
+  }
+
+  @Override
+  public void close() {
+    if (executor.isTerminated()) return;
+    shutdown();
+    try {
+      join();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -26,11 +26,13 @@
 package jdk.tools.internal;
 
 import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
 import jdk.jfr.Enabled;
 import jdk.jfr.Event;
 import jdk.jfr.Label;
 import jdk.jfr.Name;
 import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
 
 @Category({"Java Development Kit", "Tools"})
 @Enabled
@@ -47,15 +49,41 @@ public final class ToolRunEvent extends Event {
   @Label("Tool Provider")
   public Class<?> provider;
 
+  /** The arguments joined by spaces, quoted as needed to be parsed back by the command reader. */
   @Label("Tool Arguments")
   public String args;
 
   @Label("Exit Code")
   public int code;
 
+  @Label("Timed Out")
+  public boolean timedOut;
+
+  @Label("CPU Time")
+  @Timespan(Timespan.NANOSECONDS)
+  public long cpuTime;
+
+  @Label("Allocated")
+  @DataAmount
+  public long allocated;
+
+  @Label("Peak Resident Memory")
+  @DataAmount
+  public long peakResident;
+
+  /** The captured normal output, truncated at the capture limit. */
   @Label("Output")
   public String out;
 
+  /** The captured error output, truncated at the capture limit. */
   @Label("Errors")
   public String err;
+
+  /** The number of characters written to the normal output, including truncated ones. */
+  @Label("Output Length")
+  public long outLength;
+
+  /** The number of characters written to the error output, including truncated ones. */
+  @Label("Errors Length")
+  public long errLength;
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records timed spans of tool runs and exports them in the trace-event JSON format.
+ *
+ * <p>Exported files can be viewed in Perfetto or {@code chrome://tracing}. Each thread of this
+ * virtual machine recording a span is shown on its own track, numbered in order of its first span. Spans recorded by the same thread nest by time, which
+ * shows tasks and tool menus as spans enclosing the tool runs they dispatched. Spans of
+ * subprocesses are recorded by the thread that waits for the subprocess.
+ *
+ * <p>A disabled recorder records nothing: {@link #begin()} returns zero and {@link #end} returns
+ * immediately. The system trace recorder is enabled only if the {@code jdk.tools.trace} system
+ * property specifies a file, which is written when this virtual machine shuts down.
+ */
+public final class TraceRecorder {
+  private static final TraceRecorder SYSTEM = newSystemTraceRecorder();
+
+  // -Djdk.tools.trace=<file>
+  private static TraceRecorder newSystemTraceRecorder() {
+    var file = System.getProperty("jdk.tools.trace");
+    if (file == null) return new TraceRecorder(false);
+    var recorder = new TraceRecorder(true);
+    var hook = new Thread(() -> saveQuietly(recorder, file), "jdk.tools-trace-writer");
+    Runtime.getRuntime().addShutdownHook(hook);
+    return recorder;
+  }
+
+  // a trace is a diagnostic aid, failing to write it must not fail the shutdown
+  private static void saveQuietly(TraceRecorder recorder, String file) {
+    try {
+      recorder.save(Path.of(file));
+    } catch (RuntimeException exception) {
+      System.err.println("Saving trace failed: " + file + ": " + exception);
+    }
+  }
+
+  /** {@return the trace recorder shared by all tool runners of this virtual machine} */
+  public static TraceRecorder ofSystem() {
+    return SYSTEM;
+  }
+
+  /** A completed span, times are in nanoseconds relative to the origin of the recorder. */
+  record Span(
+      String name, String category, long thread, long start, long duration, String[] args) {}
+
+  private final boolean enabled;
+  private final long origin = System.nanoTime();
+  private final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+  private final Map<Long, String> threads = new ConcurrentHashMap<>();
+  private final AtomicLong tracks = new AtomicLong();
+  private final ThreadLocal<Long> track = ThreadLocal.withInitial(tracks::incrementAndGet);
+
+  public TraceRecorder(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /** {@return {@code true} if this recorder records spans} */
+  public boolean enabled() {
+    return enabled;
+  }
+
+  /** {@return a timestamp marking the begin of a span, or zero if this recorder is disabled} */
+  public long begin() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Records a span on the track of the current thread ending now.
+   *
+   * @param name the name of the span
+   * @param category the category of the span, like {@code "run"} or {@code "queue"}
+   * @param begin the timestamp returned by {@link #begin()}
+   * @param args alternating names and values of additional span details
+   */
+  public void end(String name, String category, long begin, String... args) {
+    if (!enabled) return;
+    var end = System.nanoTime();
+    var id = track.get();
+    threads.computeIfAbsent(id, __ -> Thread.currentThread().getName());
+    spans.add(new Span(name, category, id, begin - origin, end - begin, args));
+  }
+
+  /** Writes all recorded spans to the given file, replacing an existing file atomically. */
+  public void save(Path file) {
+    var pid = ProcessHandle.current().pid();
+    var events = new ArrayList<String>();
+    new TreeMap<>(threads)
+        .forEach(
+            (id, name) ->
+                events.add(
+                    """
+                    {"name":"thread_name","ph":"M","pid":%d,"tid":%d,"args":{"name":%s}}"""
+                        .formatted(pid, id, quote(name))));
+    for (var span : spans) {
+      var args = new StringBuilder();
+      for (int i = 0; i + 1 < span.args().length; i += 2) {
+        if (!args.isEmpty()) args.append(',');
+        args.append(quote(span.args()[i])).append(':').append(quote(span.args()[i + 1]));
+      }
+      events.add(
+          String.format(
+              Locale.ROOT,
+              """
+              {"name":%s,"cat":%s,"ph":"X","ts":%.3f,"dur":%.3f,"pid":%d,"tid":%d,"args":{%s}}""",
+              quote(span.name()),
+              quote(span.category()),
+              span.start() / 1000.0,
+              span.duration() / 1000.0,
+              pid,
+              span.thread(),
+              args));
+    }
+    var json = "{\"traceEvents\":[\n" + String.join(",\n", events) + "\n]}\n";
+    try {
+      var parent = file.toAbsolutePath().getParent();
+      Files.createDirectories(parent);
+      var temporary = Files.createTempFile(parent, ".trace-", ".tmp");
+      Files.writeString(temporary, json);
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  private static String quote(String string) {
+    var builder = new StringBuilder(string.length() + 2).append('"');
+    for (int i = 0; i < string.length(); i++) {
+      var c = string.charAt(i);
+      switch (c) {
+        case '"' -> builder.append("\\\"");
+        case '\\' -> builder.append("\\\\");
+        case '\n' -> builder.append("\\n");
+        case '\r' -> builder.append("\\r");
+        case '\t' -> builder.append("\\t");
+        default -> {
+          if (c < 0x20) builder.append("\\u%04x".formatted((int) c));
+          else builder.append(c);
+        }
+      }
+    }
+    return builder.append('"').toString();
+  }
+}
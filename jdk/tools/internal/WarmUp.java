@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.spi.ToolProvider;
+import jdk.tools.Program;
+import jdk.tools.ToolFinder;
+import jdk.tools.ToolOperator;
+import jdk.tools.ToolPrinter;
+
+/**
+ * Warms up in-process tools by running synthetic workloads on a low-priority daemon thread.
+ *
+ * <p>Each round compiles a small generated source set with {@code javac}, documents it with {@code
+ * javadoc}, and packages the compiled classes with {@code jar}. Tools that are not found, or that
+ * don't run in-process, are skipped. Cancelling the returned future stops the warm-up after the
+ * current workload.
+ */
+public final class WarmUp implements Runnable {
+  /** Number of rounds used if not configured otherwise. */
+  public static final int DEFAULT_ROUNDS = 10;
+
+  private static final List<String> NAMES = List.of("javac", "javadoc", "jar");
+
+  private static final Map<String, String> SOURCES =
+      Map.of(
+          "Shape.java",
+          """
+          package warm;
+
+          /** A shape. */
+          public sealed interface Shape permits Shape.Circle, Shape.Square {
+            /** A circle. @param radius the radius */
+            record Circle(double radius) implements Shape {}
+
+            /** A square. @param side the side length */
+            record Square(double side) implements Shape {}
+
+            /** {@return the area of the given shape} @param shape the shape */
+            static double area(Shape shape) {
+              if (shape instanceof Circle c) return Math.PI * c.radius() * c.radius();
+              if (shape instanceof Square square) return square.side() * square.side();
+              throw new AssertionError(shape);
+            }
+          }
+          """,
+          "Registry.java",
+          """
+          package warm;
+
+          import java.util.*;
+          import java.util.function.*;
+          import java.util.stream.*;
+
+          /** A registry. @param <T> the type of elements */
+          public class Registry<T extends Comparable<? super T>> implements Iterable<T> {
+            private final List<T> elements = new ArrayList<>();
+
+            /** {@return this registry} @param element the element to add */
+            public Registry<T> add(T element) {
+              elements.add(Objects.requireNonNull(element));
+              return this;
+            }
+
+            /** {@return sorted and mapped elements} @param mapper the mapper @param <R> the type */
+            public <R> List<R> map(Function<? super T, ? extends R> mapper) {
+              return elements.stream().sorted().map(mapper).collect(Collectors.toList());
+            }
+
+            @Override
+            public Iterator<T> iterator() {
+              return new Iterator<>() {
+                int index;
+                public boolean hasNext() { return index < elements.size(); }
+                public T next() { return elements.get(index++); }
+              };
+            }
+          }
+          """,
+          "Main.java",
+          """
+          package warm;
+
+          import java.util.stream.*;
+
+          /** The main class. */
+          public final class Main {
+            private Main() {}
+
+            /** The kind of a value. */
+            public enum Kind { SMALL, LARGE }
+
+            /** Main entry-point. @param args the arguments */
+            public static void main(String... args) {
+              var registry = new Registry<String>();
+              for (var arg : args) registry.add(arg);
+              var kinds = registry.map(arg -> switch (arg.length()) {
+                case 0, 1, 2 -> Kind.SMALL;
+                default -> Kind.LARGE;
+              });
+              var area = Stream.of(new Shape.Circle(1), new Shape.Square(2))
+                  .mapToDouble(Shape::area)
+                  .sum();
+              System.out.printf("%s %.2f%n", kinds, area);
+            }
+          }
+          """);
+
+  /**
+   * Starts warming up tools found by the given finder.
+   *
+   * @param finder the finder to look up tools with
+   * @param printer the printer to report completion to
+   * @param rounds the number of times each workload is run
+   * @return a future completing with the duration of the warm-up
+   */
+  public static CompletableFuture<Duration> start(
+      ToolFinder finder, ToolPrinter printer, int rounds) {
+    if (rounds < 0) throw new IllegalArgumentException("Negative rounds: " + rounds);
+    var warmUp = new WarmUp(finder, printer, rounds);
+    var thread = new Thread(warmUp, "jdk.tools-warm-up");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.start();
+    return warmUp.future;
+  }
+
+  private final ToolFinder finder;
+  private final ToolPrinter printer;
+  private final int rounds;
+  private final CompletableFuture<Duration> future = new CompletableFuture<>();
+
+  private WarmUp(ToolFinder finder, ToolPrinter printer, int rounds) {
+    this.finder = finder;
+    this.printer = printer;
+    this.rounds = rounds;
+  }
+
+  @Override
+  public void run() {
+    var start = System.nanoTime();
+    Path folder = null;
+    try {
+      folder = Files.createTempDirectory("jdk.tools-warm-up-");
+      var sources = new ArrayList<String>();
+      for (var source : SOURCES.entrySet()) {
+        var file = Files.createDirectories(folder.resolve("src/warm")).resolve(source.getKey());
+        sources.add(Files.writeString(file, source.getValue()).toString());
+      }
+      var providers = new ArrayList<ToolProvider>();
+      for (var name : NAMES) {
+        var tool = finder.find(name);
+        if (tool.isEmpty()) continue;
+        var provider = tool.get().provider();
+        if (provider instanceof ToolOperator) continue;
+        if (provider instanceof Program || provider instanceof Program.Pipeline) continue;
+        if (provider instanceof Program.PersistentWorkers) continue;
+        providers.add(provider);
+      }
+      var classes = folder.resolve("classes").toString();
+      var silent = new PrintWriter(Writer.nullWriter());
+      for (int round = 0; round < rounds && !future.isDone(); round++) {
+        for (var provider : providers) {
+          if (future.isDone()) break;
+          var args = new ArrayList<String>();
+          switch (provider.name()) {
+            case "javac" -> args.addAll(List.of("-d", classes, "-proc:none", "-Xlint:all"));
+            case "javadoc" -> args.addAll(List.of("-d", folder.resolve("api-" + round).toString()));
+            case "jar" -> {
+              if (!Files.isDirectory(Path.of(classes))) continue;
+              var file = folder.resolve("warm-" + round + ".jar").toString();
+              args.addAll(List.of("--create", "--file", file, "-C", classes, "."));
+            }
+            default -> throw new AssertionError(provider.name());
+          }
+          if (!provider.name().equals("jar")) args.addAll(sources);
+          provider.run(silent, silent, args.toArray(String[]::new));
+        }
+      }
+      var duration = Duration.ofNanos(System.nanoTime() - start);
+      var names = providers.stream().map(ToolProvider::name).toList();
+      printer.debug(() -> "Warmed up %s in %d ms".formatted(names, duration.toMillis()));
+      future.complete(duration);
+    } catch (IOException | RuntimeException exception) {
+      future.completeExceptionally(exception);
+    } finally {
+      if (folder != null) FileTrees.deleteQuietly(folder);
+    }
+  }
+}
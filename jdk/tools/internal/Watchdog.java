@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interrupts a thread when a time limit expires before the watchdog is closed.
+ *
+ * <p>A watchdog must be closed by the watched thread. Closing a watchdog that already fired clears
+ * the interrupt status of the watched thread only if this watchdog delivered the interrupt, an
+ * interrupt already pending when the time limit expired is kept. Watchdogs started while another
+ * one is open on the same thread are nested: a nested watchdog reports the expiry of enclosing
+ * ones via {@link #expiredInScope()}.
+ *
+ * <p>Watched code is only interrupted, not stopped: in-process tools ignoring interrupts run to
+ * completion and their time limit is only noticed after they returned.
+ */
+public final class Watchdog implements AutoCloseable {
+  private static final ScheduledThreadPoolExecutor SCHEDULER = newScheduler();
+
+  private static ScheduledThreadPoolExecutor newScheduler() {
+    var scheduler =
+        new ScheduledThreadPoolExecutor(
+            1,
+            runnable -> {
+              var thread = new Thread(runnable, "jdk.tools-watchdog");
+              thread.setDaemon(true);
+              return thread;
+            });
+    scheduler.setRemoveOnCancelPolicy(true);
+    return scheduler;
+  }
+
+  /** {@return a watchdog for the current thread, inactive if the timeout is zero or negative} */
+  public static Watchdog start(Duration timeout) {
+    return new Watchdog(Thread.currentThread(), timeout);
+  }
+
+  private static final ThreadLocal<Watchdog> CURRENT = new ThreadLocal<>();
+
+  private final Thread thread;
+  private final Duration timeout;
+  private final Watchdog enclosing;
+  private final ScheduledFuture<?> future;
+  private boolean closed;
+  private boolean expired;
+  private boolean delivered;
+
+  private Watchdog(Thread thread, Duration timeout) {
+    this.thread = thread;
+    this.timeout = timeout;
+    this.enclosing = CURRENT.get();
+    CURRENT.set(this);
+    this.future =
+        timeout.isZero() || timeout.isNegative()
+            ? null
+            : SCHEDULER.schedule(this::expire, timeout.toNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  private synchronized void expire() {
+    if (closed) return;
+    expired = true;
+    if (thread.isInterrupted()) return; // keep an interrupt of another party
+    delivered = true;
+    thread.interrupt();
+  }
+
+  /** {@return {@code true} if the time limit expired before this watchdog was closed} */
+  public synchronized boolean expired() {
+    return expired;
+  }
+
+  /** {@return {@code true} if the time limit of this or an enclosing watchdog expired} */
+  public boolean expiredInScope() {
+    for (var watchdog = this; watchdog != null; watchdog = watchdog.enclosing) {
+      if (watchdog.expired()) return true;
+    }
+    return false;
+  }
+
+  /**
+   * {@return the time limit of the innermost expired watchdog open on the current thread, or the
+   * given time limit if none of them expired}
+   */
+  public static Duration expiredTimeout(Duration timeout) {
+    for (var watchdog = CURRENT.get(); watchdog != null; watchdog = watchdog.enclosing) {
+      if (watchdog.expired()) return watchdog.timeout;
+    }
+    return timeout;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (closed) return;
+    closed = true;
+    if (future != null) future.cancel(false);
+    if (CURRENT.get() == this) CURRENT.set(enclosing);
+    if (delivered) Thread.interrupted();
+  }
+}
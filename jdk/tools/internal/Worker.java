@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.spi.ToolProvider;
+
+/**
+ * The main class of a worker virtual machine started by a {@link DefaultWorkerPool}.
+ *
+ * <p>A worker reads requests from its standard input stream and writes frames to its standard
+ * output stream. A request consists of the provider class name, the tool name, and the arguments.
+ * Frames start with a type byte: {@link #OUT} and {@link #ERR} carry output text, {@link #EXIT}
+ * carries the exit code and the number of used heap bytes after the run, and {@link #UNAVAILABLE}
+ * indicates that the requested tool could not be located. Strings are encoded as an {@code int}
+ * length followed by that many UTF-8 bytes. The worker exits when its standard input is closed.
+ */
+public final class Worker {
+  static final byte OUT = 'o';
+  static final byte ERR = 'e';
+  static final byte EXIT = 'x';
+  static final byte UNAVAILABLE = 'u';
+
+  public static void main(String... args) throws IOException {
+    var output = new FileOutputStream(FileDescriptor.out);
+    var frames = new DataOutputStream(new BufferedOutputStream(output));
+    System.setOut(System.err); // keep stray output of tools out of the frame stream
+    var requests = new DataInputStream(new BufferedInputStream(System.in));
+    var worker = new Worker(frames);
+    while (true) {
+      String type;
+      try {
+        type = readString(requests);
+      } catch (EOFException exception) {
+        return;
+      }
+      var name = readString(requests);
+      var arguments = new String[requests.readInt()];
+      for (int i = 0; i < arguments.length; i++) arguments[i] = readString(requests);
+      worker.run(type, name, arguments);
+    }
+  }
+
+  static void writeString(DataOutputStream stream, String string) throws IOException {
+    var bytes = string.getBytes(StandardCharsets.UTF_8);
+    stream.writeInt(bytes.length);
+    stream.write(bytes);
+  }
+
+  static String readString(DataInputStream stream) throws IOException {
+    var bytes = new byte[stream.readInt()];
+    stream.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private final DataOutputStream frames;
+  private final Map<String, ToolProvider> providers = new HashMap<>();
+
+  private Worker(DataOutputStream frames) {
+    this.frames = frames;
+  }
+
+  private void run(String type, String name, String... arguments) throws IOException {
+    var provider = providers.computeIfAbsent(type + '/' + name, __ -> locate(type, name));
+    if (provider == null) {
+      synchronized (frames) {
+        frames.writeByte(UNAVAILABLE);
+        writeString(frames, type + '/' + name);
+        frames.flush();
+      }
+      return;
+    }
+    var out = new PrintWriter(new FrameWriter(OUT));
+    var err = new PrintWriter(new FrameWriter(ERR));
+    int code;
+    try {
+      Thread.currentThread().setContextClassLoader(provider.getClass().getClassLoader());
+      code = provider.run(out, err, arguments);
+    } catch (RuntimeException exception) {
+      exception.printStackTrace(err);
+      code = 1;
+    }
+    out.flush();
+    err.flush();
+    var runtime = Runtime.getRuntime();
+    synchronized (frames) {
+      frames.writeByte(EXIT);
+      frames.writeInt(code);
+      frames.writeLong(runtime.totalMemory() - runtime.freeMemory());
+      frames.flush();
+    }
+  }
+
+  private static ToolProvider locate(String type, String name) {
+    var service =
+        ServiceLoader.load(ToolProvider.class).stream()
+            .filter(provider -> provider.type().getName().equals(type))
+            .map(ServiceLoader.Provider::get)
+            .filter(provider -> provider.name().equals(name))
+            .findFirst();
+    if (service.isPresent()) return service.get();
+    try {
+      var loader = ClassLoader.getSystemClassLoader();
+      var provider = Class.forName(type, true, loader).getConstructor().newInstance();
+      return provider instanceof ToolProvider tool && tool.name().equals(name) ? tool : null;
+    } catch (ReflectiveOperationException | RuntimeException exception) {
+      return null;
+    }
+  }
+
+  private final class FrameWriter extends Writer {
+    private final byte type;
+    private final StringBuilder buffer = new StringBuilder();
+
+    private FrameWriter(byte type) {
+      this.type = type;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+      buffer.append(chars, offset, length);
+      if (buffer.length() >= 8192) flush();
+    }
+
+    @Override
+    public void flush() {
+      if (buffer.isEmpty()) return;
+      try {
+        synchronized (frames) {
+          frames.writeByte(type);
+          writeString(frames, buffer.toString());
+          frames.flush();
+        }
+      } catch (IOException exception) {
+        throw new UncheckedIOException(exception);
+      }
+      buffer.setLength(0);
+    }
+
+    @Override
+    public void close() {
+      flush();
+    }
+  }
+}
@@ -118,8 +118,13 @@
  */
 module jdk.tools {
   requires jdk.jfr;
+  requires jdk.management;
 
   exports jdk.tools;
 
   uses java.util.spi.ToolProvider;
+
+  provides java.util.spi.ToolProvider with
+      jdk.tools.internal.ParallelJar,
+      jdk.tools.internal.ParallelJavac;
 }
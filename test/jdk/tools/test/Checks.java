@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.test;
+
+import java.io.PrintWriter;
+import java.util.Objects;
+import java.util.spi.ToolProvider;
+
+/** Assertions and tools shared by tests. */
+final class Checks {
+  /** Fails if the given values are not equal. */
+  static void assertEquals(Object expected, Object actual, String message) {
+    if (Objects.equals(expected, actual)) return;
+    throw new AssertionError("%s: expected <%s> but was <%s>".formatted(message, expected, actual));
+  }
+
+  /** Fails if the given condition is false. */
+  static void assertTrue(boolean condition, String message) {
+    if (!condition) throw new AssertionError(message);
+  }
+
+  /** {@return the exception thrown by the given runnable, failing if it completes normally} */
+  static <T extends Throwable> T assertThrows(Class<T> type, Runnable runnable, String message) {
+    try {
+      runnable.run();
+    } catch (Throwable throwable) {
+      if (type.isInstance(throwable)) return type.cast(throwable);
+      throw new AssertionError(message + ": unexpected " + throwable, throwable);
+    }
+    throw new AssertionError(message + ": nothing thrown");
+  }
+
+  /** A tool returning the exit code given as its first argument, zero by default. */
+  record Exit(String name) implements ToolProvider {
+    @Override
+    public int run(PrintWriter out, PrintWriter err, String... args) {
+      return args.length == 0 ? 0 : Integer.parseInt(args[0]);
+    }
+  }
+
+  /** A tool sleeping for the milliseconds given as its first argument, failing if interrupted. */
+  record Sleep(String name) implements ToolProvider {
+    @Override
+    public int run(PrintWriter out, PrintWriter err, String... args) {
+      try {
+        Thread.sleep(Long.parseLong(args[0]));
+        return 0;
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+        return 1;
+      }
+    }
+  }
+
+  private Checks() {}
+}
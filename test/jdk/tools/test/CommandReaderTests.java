@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.test;
+
+import static jdk.tools.test.Checks.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import jdk.tools.Command;
+import jdk.tools.Task;
+
+/** Tests reading commands from task files. */
+public final class CommandReaderTests {
+  public static void main(String... args) throws IOException {
+    quotedOrEscapedDelimiterIsArgument();
+  }
+
+  static void quotedOrEscapedDelimiterIsArgument() throws IOException {
+    var file = Files.createTempFile("commands-", ".txt");
+    try {
+      Files.writeString(file, "echo a \\+ b '+' \"+\" + echo c\necho d + echo \\+\n");
+      var expected =
+          List.of(
+              Command.of("echo", "a", "+", "b", "+", "+"),
+              Command.of("echo", "c"),
+              Command.of("echo", "d"),
+              Command.of("echo", "+"));
+      var commands = Task.of("test", "file", file).commands();
+      assertEquals(expected, commands, "commands read from:\n" + Files.readString(file));
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.test;
+
+import static jdk.tools.test.Checks.assertEquals;
+import static jdk.tools.test.Checks.assertThrows;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+import jdk.tools.Command;
+import jdk.tools.Task;
+import jdk.tools.Tool;
+import jdk.tools.ToolFinder;
+import jdk.tools.ToolPrinter;
+import jdk.tools.ToolRunner;
+
+/** Tests running compatible {@code javac} commands as a single compilation. */
+public final class JavacCoalescingTaskTests {
+  public static void main(String... args) throws IOException {
+    fallbackReportsDiagnosticsOnce();
+  }
+
+  static void fallbackReportsDiagnosticsOnce() throws IOException {
+    var temp = Files.createTempDirectory("javac-coalescing-");
+    var a = write(temp.resolve("src/a/A.java"), "package a; public class A {}");
+    var b = write(temp.resolve("src/b/B.java"), "package b; class B { int i = \"not an int\"; }");
+    var task =
+        Task.of(
+            "test",
+            "compile",
+            Command.of("javac", "-d", temp.resolve("a").toString(), a.toString()),
+            Command.of("javac", "-d", temp.resolve("b").toString(), b.toString()));
+    var err = new StringWriter();
+    var printer = ToolPrinter.of(new PrintWriter(new StringWriter()), new PrintWriter(err));
+    var runner = ToolRunner.of(ToolFinder.of("javac"), printer);
+    assertThrows(
+        RuntimeException.class,
+        () -> runner.run(Tool.of(task.coalesceJavacCommands())),
+        "coalesced compilation with a failing command");
+    var errors = Pattern.compile("B\\.java:\\d+: error").matcher(err.toString()).results().count();
+    assertEquals(1L, errors, "number of reported errors in:\n" + err);
+  }
+
+  private static Path write(Path file, String text) throws IOException {
+    Files.createDirectories(file.getParent());
+    return Files.writeString(file, text);
+  }
+}
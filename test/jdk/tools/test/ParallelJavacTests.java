@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.test;
+
+import static jdk.tools.test.Checks.assertEquals;
+import static jdk.tools.test.Checks.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import jdk.tools.Command;
+import jdk.tools.ToolFinder;
+import jdk.tools.ToolPrinter;
+import jdk.tools.ToolRunner;
+
+/** Tests compiling modules concurrently with the {@code parallel-javac} tool. */
+public final class ParallelJavacTests {
+  public static void main(String... args) throws IOException {
+    parallelJavacFailsIfModuleFailsToCompile();
+  }
+
+  static void parallelJavacFailsIfModuleFailsToCompile() throws IOException {
+    var temp = Files.createTempDirectory("parallel-javac-");
+    var sources = temp.resolve("src");
+    var classes = temp.resolve("classes");
+    write(sources.resolve("a/module-info.java"), "module a { exports a; }");
+    write(sources.resolve("a/a/A.java"), "package a; public class A {}");
+    write(sources.resolve("b/module-info.java"), "module b { requires a; }");
+    write(sources.resolve("b/b/B.java"), "package b; class B { int i = \"not an int\"; }");
+    write(sources.resolve("c/module-info.java"), "module c { requires b; }");
+    write(sources.resolve("d/module-info.java"), "module d {}");
+    var err = new StringWriter();
+    var printer = ToolPrinter.of(new PrintWriter(new StringWriter()), new PrintWriter(err));
+    var runner = ToolRunner.of(ToolFinder.of("parallel-javac", "javac"), printer);
+    var command =
+        Command.of("parallel-javac")
+            .with("--module-source-path", sources.toString())
+            .with("-d", classes.toString());
+    var result = runner.call(command);
+    assertEquals(1, result.code(), "exit code of parallel-javac with a failing module");
+    assertTrue(result.err().contains("b, c"), result.err());
+    assertTrue(Files.isRegularFile(classes.resolve("a/a/A.class")), "module a compiled");
+    assertTrue(Files.isRegularFile(classes.resolve("d/module-info.class")), "module d compiled");
+    assertTrue(Files.notExists(classes.resolve("c")), "module c skipped");
+  }
+
+  private static void write(Path file, String text) throws IOException {
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, text);
+  }
+}
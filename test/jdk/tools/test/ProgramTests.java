@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.test;
+
+import static jdk.tools.test.Checks.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.List;
+import jdk.tools.Command;
+import jdk.tools.Program;
+import jdk.tools.Tool;
+import jdk.tools.ToolPrinter;
+import jdk.tools.ToolRunner;
+
+/** Tests running programs as tools. */
+public final class ProgramTests {
+  public static void main(String... args) {
+    // output read after the process exited races with the result, repeat to make a loss likely
+    for (int i = 0; i < 50; i++) programOutputIsCompleteWhenRunReturns();
+  }
+
+  static void programOutputIsCompleteWhenRunReturns() {
+    var program = new Program("seq", List.of("sh", "-c", "seq 1 2000"));
+    var silent = new PrintWriter(Writer.nullWriter());
+    var runner = ToolRunner.of(Tool.of(program), ToolPrinter.of(silent, silent));
+    var result = runner.call(Command.of("seq"));
+    assertTrue(result.out().endsWith("\n2000"), "last line missing: ..." + tail(result.out()));
+  }
+
+  private static String tail(String text) {
+    return text.substring(Math.max(0, text.length() - 20));
+  }
+}
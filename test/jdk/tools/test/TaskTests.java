@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.test;
+
+import static jdk.tools.test.Checks.assertThrows;
+import static jdk.tools.test.Checks.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.List;
+import jdk.tools.Command;
+import jdk.tools.Task;
+import jdk.tools.Tool;
+import jdk.tools.ToolFinder;
+import jdk.tools.ToolPrinter;
+import jdk.tools.ToolRunner;
+
+/** Tests running tasks. */
+public final class TaskTests {
+  public static void main(String... args) {
+    // failures race with the shutdown of the scope, repeat to make a lost failure likely
+    for (int i = 0; i < 20; i++) {
+      parallelTaskFailsIfCommandFails();
+      flattenedTaskFailsIfCommandFails();
+    }
+  }
+
+  /** A parallel task. */
+  record Parallel(String name, List<Command> commands) implements Task {
+    @Override
+    public boolean parallel() {
+      return true;
+    }
+  }
+
+  static ToolRunner newToolRunner() {
+    var silent = new PrintWriter(Writer.nullWriter());
+    var finder = ToolFinder.of(Tool.of(new Checks.Exit("exit")));
+    return ToolRunner.of(finder, ToolPrinter.of(silent, silent));
+  }
+
+  static void parallelTaskFailsIfCommandFails() {
+    var commands = List.of(Command.of("exit", 0), Command.of("exit", 3), Command.of("exit", 0));
+    var task = new Parallel("par", commands);
+    var exception =
+        assertThrows(
+            RuntimeException.class,
+            () -> newToolRunner().run(Tool.of(task)),
+            "parallel task with a failing command");
+    assertTrue(exception.getMessage().contains("failed"), exception.getMessage());
+  }
+
+  static void flattenedTaskFailsIfCommandFails() {
+    var first = Task.of("test", "first", Command.of("exit", 0), Command.of("exit", 3));
+    var second = Task.of("test", "second", Command.of("exit", 0), Command.of("exit", 0, 1));
+    var root = new Parallel("root", List.of(Command.of("first"), Command.of("second")));
+    var silent = new PrintWriter(Writer.nullWriter());
+    var exit = Tool.of(new Checks.Exit("exit"));
+    var finder = ToolFinder.of(exit, Tool.of(first), Tool.of(second));
+    var runner = ToolRunner.of(finder, ToolPrinter.of(silent, silent));
+    var exception =
+        assertThrows(
+            RuntimeException.class,
+            () -> runner.run(Tool.of(root.flatten())),
+            "flattened task with a failing command");
+    assertTrue(exception.getMessage().contains("failed"), exception.getMessage());
+  }
+}
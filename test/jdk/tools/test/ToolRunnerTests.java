@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.tools.test;
+
+import static jdk.tools.test.Checks.assertThrows;
+import static jdk.tools.test.Checks.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.List;
+import jdk.tools.Command;
+import jdk.tools.Tool;
+import jdk.tools.ToolFinder;
+import jdk.tools.ToolPrinter;
+import jdk.tools.ToolRunner;
+import jdk.tools.ToolTimeoutException;
+
+/** Tests running tools with a tool runner. */
+public final class ToolRunnerTests {
+  public static void main(String... args) {
+    parallelTaskTimesOutWithTimeoutOfRunner();
+  }
+
+  static void parallelTaskTimesOutWithTimeoutOfRunner() {
+    var commands = List.of(Command.of("sleep", 10_000), Command.of("sleep", 10_000));
+    var task = new TaskTests.Parallel("par", commands);
+    var silent = new PrintWriter(Writer.nullWriter());
+    var finder = ToolFinder.of(Tool.of(new Checks.Sleep("sleep")), Tool.of(task));
+    var timeout = Duration.ofMillis(200);
+    var runner = ToolRunner.of(finder, ToolPrinter.of(silent, silent)).withTimeout(timeout);
+    var exception =
+        assertThrows(
+            ToolTimeoutException.class, () -> runner.run("par"), "parallel task running too long");
+    var message = exception.getMessage();
+    assertTrue(message.endsWith("timed out after " + timeout), message);
+  }
+}